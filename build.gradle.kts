@@ -13,12 +13,37 @@ repositories {
     mavenCentral()
 }
 
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath
+        runtimeClasspath += sourceSets["main"].output + sourceSets["main"].runtimeClasspath
+    }
+    create("server") {
+        compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath
+        runtimeClasspath += sourceSets["main"].output + sourceSets["main"].runtimeClasspath
+    }
+    named("test") {
+        compileClasspath += sourceSets["server"].output
+        runtimeClasspath += sourceSets["server"].output
+    }
+}
+
 dependencies {
     implementation(dependencyNotation = "org.jetbrains:annotations:16.0.2")
     testImplementation(dependencyNotation = "junit:junit:4.12")
+    "jmhImplementation"(dependencyNotation = "org.openjdk.jmh:jmh-core:1.21")
+    "jmhAnnotationProcessor"(dependencyNotation = "org.openjdk.jmh:jmh-generator-annprocess:1.21")
 }
 
 tasks {
+    named<JavaCompile>(name = "compileJava") {
+        options.compilerArgs.addAll(listOf("-Xlint:all", "-Xlint:-processing", "-Xlint:-options"))
+    }
     named<Test>(name = "test") {
         testLogging {
             events("passed", "skipped", "failed")
@@ -29,6 +54,35 @@ tasks {
             (options as StandardJavadocDocletOptions).addBooleanOption("html5", true)
         }
     }
+    register<JavaExec>("jmh") {
+        description = "Runs the JMH benchmarks with allocation profiling and writes JSON results."
+        group = "verification"
+        dependsOn("jmhClasses")
+        classpath = sourceSets["jmh"].runtimeClasspath
+        main = "org.openjdk.jmh.Main"
+        val results = file("$buildDir/reports/jmh/results.json")
+        // Run a subset with -PjmhInclude=<regex>, e.g. -PjmhInclude=BoardBenchmark.playout
+        val include = project.findProperty("jmhInclude")?.toString()
+        args = listOfNotNull(include) + listOf("-prof", "gc", "-rf", "json", "-rff", results.path)
+        doFirst {
+            results.parentFile.mkdirs()
+        }
+    }
+    register<JavaExec>("server") {
+        description = "Runs the embedded game server. Pass arguments with -PserverArgs."
+        group = "application"
+        classpath = sourceSets["server"].runtimeClasspath
+        main = "com.developersam.game.ten.GameServer"
+        args = project.findProperty("serverArgs")?.toString()?.split(" ") ?: listOf()
+    }
+    register<JavaExec>("loadTest") {
+        description = "Runs a load test and reports the p50 and p99 latency of the server."
+        group = "verification"
+        classpath = sourceSets["server"].runtimeClasspath
+        main = "com.developersam.game.ten.LoadGenerator"
+        // Run against a remote server with -PloadTestArgs="<clients> <seconds> <url>"
+        args = project.findProperty("loadTestArgs")?.toString()?.split(" ") ?: listOf()
+    }
     register<Jar>("sourcesJar") {
         from(sourceSets["main"].allJava)
         classifier = "sources"
@@ -0,0 +1,61 @@
+package com.developersam.game.ten;
+
+import java.util.List;
+
+/**
+ * The fixed corpus of positions shared by all benchmarks.
+ * <p>
+ * The positions are reached by random games from the empty board with a fixed seed, so every run
+ * and every release measures the same positions.
+ */
+final class BenchmarkPositions {
+
+    /**
+     * The number of positions of every phase, a power of two so that benchmarks can cycle
+     * through them with a mask.
+     */
+    static final int SIZE = 16;
+
+    private BenchmarkPositions() {
+    }
+
+    /**
+     * Generate the positions of a phase of the game.
+     *
+     * @param phase "opening", "midgame" or "endgame".
+     * @return the positions, where the game has not ended.
+     */
+    static Board[] of(String phase) {
+        int moves;
+        switch (phase) {
+            case "opening":
+                moves = 4;
+                break;
+            case "midgame":
+                moves = 25;
+                break;
+            case "endgame":
+                moves = 45;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown phase: " + phase);
+        }
+        FastRandom random = new FastRandom(2018);
+        Board[] positions = new Board[SIZE];
+        int count = 0;
+        while (count < SIZE) {
+            Board board = new Board(new BoardData(new int[81], -1, 1));
+            for (int i = 0; i < moves && board.getGameStatus() == 0; i++) {
+                List<Move> legalMoves = board.getAllLegalMovesForAI();
+                board = board.makeMoveWithoutCheck(
+                        legalMoves.get(random.nextInt(legalMoves.size())));
+            }
+            // Games that ended early do not belong to the phase.
+            if (board.getGameStatus() == 0) {
+                positions[count++] = board;
+            }
+        }
+        return positions;
+    }
+
+}
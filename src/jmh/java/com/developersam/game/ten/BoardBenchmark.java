@@ -0,0 +1,102 @@
+package com.developersam.game.ten;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the board operations and random playouts.
+ * Every invocation works on the next position of the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    /**
+     * The phase of the positions.
+     */
+    @Param({"opening", "midgame", "endgame"})
+    public String phase;
+
+    /**
+     * The positions.
+     */
+    private Board[] positions;
+    /**
+     * A legal move of every position.
+     */
+    private Move[] moves;
+    /**
+     * The playout board, reused like in the search.
+     */
+    private final PlayoutBoard playoutBoard = new PlayoutBoard();
+    /**
+     * The source of playout moves, with a fixed seed.
+     */
+    private final FastRandom random = new FastRandom(42);
+    /**
+     * The index of the next position.
+     */
+    private int index;
+
+    @Setup
+    public void setUp() {
+        positions = BenchmarkPositions.of(phase);
+        moves = new Move[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            List<Move> legalMoves = positions[i].getAllLegalMovesForAI();
+            moves[i] = legalMoves.get(legalMoves.size() / 2);
+        }
+    }
+
+    /**
+     * @return the index of the next position.
+     */
+    private int next() {
+        index = (index + 1) & (BenchmarkPositions.SIZE - 1);
+        return index;
+    }
+
+    @Benchmark
+    public Board makeMoveWithoutCheck() {
+        int i = next();
+        return positions[i].makeMoveWithoutCheck(moves[i]);
+    }
+
+    @Benchmark
+    public List<Move> getAllLegalMovesForAI() {
+        return positions[next()].getAllLegalMovesForAI();
+    }
+
+    @Benchmark
+    public int getGameStatus() {
+        return positions[next()].getGameStatus();
+    }
+
+    /**
+     * One full random playout per invocation, so the score is playouts per microsecond.
+     *
+     * @return the winner.
+     */
+    @Benchmark
+    public int playout() {
+        positions[next()].copyInto(playoutBoard);
+        return playoutBoard.playRandomGame(random);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.developersam.game.ten;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the search: selection on a deep tree, and a whole decision at a fixed number of
+ * simulations. Searches are single-threaded and seeded, so every run does the same work.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    /**
+     * The number of simulations of the tree searched by selection.
+     */
+    private static final int TREE_SIMULATIONS = 200_000;
+
+    /**
+     * The phase of the positions.
+     */
+    @Param({"opening", "midgame", "endgame"})
+    public String phase;
+    /**
+     * The number of simulations of a decision.
+     */
+    @Param({"10000"})
+    public int simulations;
+
+    /**
+     * The positions.
+     */
+    private Board[] positions;
+    /**
+     * The deep tree of the first position.
+     */
+    private final NodePool tree = new NodePool();
+    /**
+     * The board of the selection.
+     */
+    private final PlayoutBoard board = new PlayoutBoard();
+    /**
+     * The path of the selection.
+     */
+    private final int[] path = new int[82];
+    /**
+     * The configuration of a decision.
+     */
+    private SearchConfig config;
+    /**
+     * The index of the next position.
+     */
+    private int index;
+
+    @Setup
+    public void setUp() {
+        positions = BenchmarkPositions.of(phase);
+        SearchConfig treeConfig = SearchConfig.DEFAULT.withThreads(1).withSeed(1)
+                .withTimeLimit(Long.MAX_VALUE).withSimulationLimit(TREE_SIMULATIONS);
+        MCTS.resetTree(tree);
+        MCTS.selectMove(tree, positions[0], treeConfig);
+        config = SearchConfig.DEFAULT.withThreads(1).withSeed(2)
+                .withTimeLimit(Long.MAX_VALUE).withSimulationLimit(simulations);
+    }
+
+    /**
+     * Select down the deep tree and remove the virtual loss again, so the tree does not change.
+     *
+     * @return the depth of the selected node.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int selection() {
+        positions[0].copyInto(board);
+        int depth = MCTS.selection(tree, board, path);
+        MCTS.backpropagation(tree, path, depth, 0, 0);
+        return depth;
+    }
+
+    /**
+     * A whole decision, including the creation of its tree in the thread's node pool.
+     *
+     * @return the decision.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public MCTS.Decision selectMove() {
+        index = (index + 1) & (BenchmarkPositions.SIZE - 1);
+        return MCTS.selectMove(positions[index], config);
+    }
+
+}
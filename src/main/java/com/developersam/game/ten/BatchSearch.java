@@ -0,0 +1,338 @@
+package com.developersam.game.ten;
+
+import com.developersam.game.ten.MCTS.Decision;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A scheduler of many concurrent searches over one shared pool of worker threads.
+ * <p>
+ * Every search keeps its own tree and runs as a sequence of short time slices. After a slice, an
+ * unfinished search goes back to the end of the queue, so all searches in progress share the
+ * workers round robin and a burst of requests cannot starve each other. Each search has its own
+ * budget: a time limit, measured from its submission, or a number of simulations.
+ */
+public final class BatchSearch implements AutoCloseable {
+
+    /**
+     * The default length of a time slice in milliseconds.
+     */
+    private static final long DEFAULT_SLICE = 20;
+
+    /**
+     * The search configuration. Only the settings of the tree, which are the transposition table,
+     * the exploration, RAVE, the expansion mode, the solver and the node limit, and the seed are
+     * used.
+     */
+    private final SearchConfig config;
+    /**
+     * The length of a time slice in milliseconds.
+     */
+    private final long slice;
+    /**
+     * The maximum number of idle node pools kept for later searches.
+     */
+    private final int maxIdlePools;
+    /**
+     * The workers, which run slices in FIFO order.
+     */
+    private final ThreadPoolExecutor workers;
+    /**
+     * The node pools of finished searches, reused by new searches.
+     */
+    private final ConcurrentLinkedQueue<NodePool> idlePools = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Create a scheduler with one worker per available processor.
+     */
+    public BatchSearch() {
+        this(SearchConfig.DEFAULT, Runtime.getRuntime().availableProcessors(), DEFAULT_SLICE);
+    }
+
+    /**
+     * Create a scheduler.
+     *
+     * @param config the search configuration. Only the settings of the tree and the seed are
+     * used.
+     * @param threads the number of worker threads.
+     * @param slice the length of a time slice in milliseconds.
+     */
+    BatchSearch(@NotNull SearchConfig config, int threads, long slice) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("There must be at least one thread!");
+        }
+        if (slice < 1) {
+            throw new IllegalArgumentException("Time slice must be positive!");
+        }
+        this.config = config;
+        this.slice = slice;
+        this.maxIdlePools = 2 * threads;
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "ten-batch-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Submit a search.
+     *
+     * @param clientBoard the board of the client.
+     * @param budget the budget of the search.
+     * @return the future server response, completed when the search finishes. Cancelling it
+     * stops the search at the end of the current slice.
+     * @throws IllegalArgumentException if the board has no legal move.
+     */
+    @NotNull
+    public CompletableFuture<ServerResponse> submit(@NotNull BoardData clientBoard,
+                                                    @NotNull Budget budget) {
+        return submit(new Board(clientBoard), budget);
+    }
+
+    /**
+     * Submit a search of a board.
+     *
+     * @param board the board of the root.
+     * @param budget the budget of the search.
+     * @return the future server response, as in {@link #submit(BoardData, Budget)}.
+     * @throws IllegalArgumentException if the board has no legal move.
+     */
+    @NotNull
+    CompletableFuture<ServerResponse> submit(@NotNull Board board, @NotNull Budget budget) {
+        Board.requireLegalMoves(board);
+        Task task = new Task(board, budget);
+        schedule(task);
+        return task.future;
+    }
+
+    /**
+     * Submit many searches at once.
+     *
+     * @param clientBoards the boards of the clients.
+     * @param budgets the budget of every search.
+     * @return the future server responses in the order of the boards, each completed as soon as
+     * its own search finishes.
+     */
+    @NotNull
+    public List<CompletableFuture<ServerResponse>> submitAll(
+            @NotNull List<BoardData> clientBoards, @NotNull List<Budget> budgets) {
+        if (clientBoards.size() != budgets.size()) {
+            throw new IllegalArgumentException("Every board needs a budget!");
+        }
+        List<CompletableFuture<ServerResponse>> futures = new ArrayList<>(clientBoards.size());
+        for (int i = 0; i < clientBoards.size(); i++) {
+            futures.add(submit(clientBoards.get(i), budgets.get(i)));
+        }
+        return futures;
+    }
+
+    /**
+     * Put a task at the end of the queue, or fail it if the scheduler is closed.
+     *
+     * @param task the task.
+     */
+    private void schedule(Task task) {
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.fail(new IllegalStateException("The batch search is closed!", e));
+        }
+    }
+
+    /**
+     * Stop the workers. Searches that have not finished fail with an
+     * {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        for (Runnable pending : workers.shutdownNow()) {
+            ((Task) pending).fail(new IllegalStateException("The batch search is closed!"));
+        }
+    }
+
+    /**
+     * The budget of one search.
+     */
+    public static final class Budget {
+
+        /**
+         * The time limit in milliseconds from the submission, or {@link Long#MAX_VALUE}.
+         */
+        final long timeLimit;
+        /**
+         * The maximum number of simulations, or {@link Long#MAX_VALUE}.
+         */
+        final long simulationLimit;
+
+        /**
+         * @param timeLimit the time limit.
+         * @param simulationLimit the maximum number of simulations.
+         */
+        private Budget(long timeLimit, long simulationLimit) {
+            this.timeLimit = timeLimit;
+            this.simulationLimit = simulationLimit;
+        }
+
+        /**
+         * @param timeLimit the time limit in milliseconds, measured from the submission.
+         * @return the budget that stops the search when the time is up.
+         */
+        @NotNull
+        public static Budget ofTime(long timeLimit) {
+            if (timeLimit < 0) {
+                throw new IllegalArgumentException("Time limit must be non-negative!");
+            }
+            return new Budget(timeLimit, Long.MAX_VALUE);
+        }
+
+        /**
+         * @param simulations the number of simulations.
+         * @return the budget that stops the search after the number of simulations.
+         */
+        @NotNull
+        public static Budget ofSimulations(long simulations) {
+            if (simulations < 1) {
+                throw new IllegalArgumentException("There must be at least one simulation!");
+            }
+            return new Budget(Long.MAX_VALUE, simulations);
+        }
+
+    }
+
+    /**
+     * One search, run one slice at a time.
+     */
+    private final class Task implements Runnable {
+
+        /**
+         * The board of the root.
+         */
+        private final Board board;
+        /**
+         * The control of the search across its slices, which stops at the simulation limit or
+         * when the root is proven.
+         */
+        private final SearchControl control;
+        /**
+         * Whether the root has a single legal move, which needs no more than one slice.
+         */
+        private final boolean forced;
+        /**
+         * The time at which the search stops, or {@link Long#MAX_VALUE}.
+         */
+        private final long deadline;
+        /**
+         * The master seed of the search.
+         */
+        private final long seed;
+        /**
+         * The source of playout seeds, carried across slices.
+         */
+        private final FastRandom random;
+        /**
+         * The future response.
+         */
+        private final CompletableFuture<ServerResponse> future = new CompletableFuture<>();
+        /**
+         * The tree, or null before the first slice and after the search.
+         */
+        @Nullable
+        private NodePool pool;
+        /**
+         * The number of simulations done so far.
+         */
+        private int simulationCounter;
+
+        /**
+         * @param board the board of the root.
+         * @param budget the budget of the search.
+         */
+        private Task(Board board, Budget budget) {
+            this.board = board;
+            this.control = new SearchControl(budget.simulationLimit);
+            this.forced = board.getAllLegalMovesForAI().size() == 1;
+            long now = System.currentTimeMillis();
+            this.deadline = budget.timeLimit > Long.MAX_VALUE - now
+                    ? Long.MAX_VALUE : now + budget.timeLimit;
+            this.seed = config.isSeeded()
+                    ? config.getSeed() : ThreadLocalRandom.current().nextLong();
+            this.random = new FastRandom(seed);
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                release();
+                return;
+            }
+            NodePool pool = this.pool;
+            if (pool == null) {
+                pool = idlePools.poll();
+                if (pool == null) {
+                    pool = new NodePool();
+                }
+                pool.setTranspositionTableSize(config.getTranspositionTableSize());
+                pool.setExploration(config.getExploration());
+                pool.setRaveEquivalence(config.getRaveEquivalence());
+                pool.setProgressiveExpansion(config.isProgressiveExpansion());
+                pool.setSolverThreshold(config.getSolverThreshold());
+                pool.setNodeLimit(config.getNodeLimit());
+                MCTS.resetTree(pool);
+                this.pool = pool;
+            }
+            // A slice lasts at least 1ms, so that a late search still gets a simulation.
+            long timeLimit = Math.max(Math.min(slice, deadline - System.currentTimeMillis()), 1);
+            try {
+                simulationCounter += MCTS.searchSlice(pool, board, timeLimit, random, control);
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            // A search always gets at least one simulation, so that it has a move to answer.
+            boolean finished = simulationCounter > 0 && (control.isStopped() || forced
+                    || System.currentTimeMillis() >= deadline);
+            if (!finished) {
+                schedule(this);
+                return;
+            }
+            Decision decision = MCTS.decide(pool, simulationCounter, seed);
+            release();
+            future.complete(new ServerResponse(
+                    decision.move, decision.winningPercentage, decision.simulationCounter));
+        }
+
+        /**
+         * Fail the search and release its tree.
+         *
+         * @param cause the cause of the failure.
+         */
+        private void fail(Throwable cause) {
+            release();
+            future.completeExceptionally(cause);
+        }
+
+        /**
+         * Give the tree back to the idle pools.
+         */
+        private void release() {
+            NodePool pool = this.pool;
+            this.pool = null;
+            if (pool != null && idlePools.size() < maxIdlePools) {
+                idlePools.offer(pool);
+            }
+        }
+
+    }
+
+}
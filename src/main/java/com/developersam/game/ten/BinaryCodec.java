@@ -0,0 +1,206 @@
+package com.developersam.game.ten;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A compact binary wire format of boards and server responses, as an alternative to JSON.
+ * <p>
+ * A board takes {@value #BOARD_BYTES} bytes: 2 bits per tile, stored as the 81 bit plane of black
+ * tiles followed by the 81 bit plane of white tiles in 21 little endian bytes, and one state
+ * byte with the big square to pick plus 1 in the lower 4 bits and bit 4 set when white is the
+ * current player. Tile a * 9 + b is bit a * 9 + b of its plane, so the planes map directly onto
+ * the tile words of a {@link Board}. A response takes {@value #RESPONSE_BYTES} bytes: the two
+ * coordinates of the move and the winning percentage as signed bytes, followed by the number of
+ * simulations as a big endian int.
+ * <p>
+ * All methods read and write at the current position of the buffer and advance it. The byte
+ * order of the buffer is ignored.
+ */
+public final class BinaryCodec {
+
+    /**
+     * The number of bytes of an encoded board.
+     */
+    public static final int BOARD_BYTES = 22;
+    /**
+     * The number of bytes of an encoded server response.
+     */
+    public static final int RESPONSE_BYTES = 7;
+    /**
+     * The number of tile bytes of an encoded board.
+     */
+    private static final int TILE_BYTES = 21;
+    /**
+     * The number of bits of the tiles in the high tile word.
+     */
+    private static final int HIGH_WORD_BITS = 81 - Board.HIGH_WORD_BIG_SQUARE * 9;
+    /**
+     * The mask of the tiles in the low tile word.
+     */
+    private static final long LOW_WORD_MASK = (1L << (Board.HIGH_WORD_BIG_SQUARE * 9)) - 1;
+    /**
+     * The mask of the tiles in the high tile word.
+     */
+    private static final long HIGH_WORD_MASK = (1L << HIGH_WORD_BITS) - 1;
+
+    private BinaryCodec() {
+    }
+
+    /**
+     * Encode a board.
+     *
+     * @param board the board.
+     * @param buffer the buffer to write {@value #BOARD_BYTES} bytes to.
+     */
+    public static void encode(@NotNull Board board, @NotNull ByteBuffer buffer) {
+        putTiles(buffer, board.getBlackTilesLow(), board.getBlackTilesHigh(),
+                board.getWhiteTilesLow(), board.getWhiteTilesHigh());
+        buffer.put((byte) packState(board.getBigSquareToPick(), board.getPlayerIdentity()));
+    }
+
+    /**
+     * Encode the board data of a client.
+     *
+     * @param boardData the board data.
+     * @param buffer the buffer to write {@value #BOARD_BYTES} bytes to.
+     */
+    public static void encode(@NotNull BoardData boardData, @NotNull ByteBuffer buffer) {
+        int[] tiles = boardData.tiles;
+        long blackLow = 0, blackHigh = 0, whiteLow = 0, whiteHigh = 0;
+        for (int a = 0; a < 9; a++) {
+            for (int b = 0; b < 9; b++) {
+                int tile = tiles[a * 9 + b];
+                if (tile == 0) {
+                    continue;
+                }
+                long bit = 1L << (Board.squareShift(a) + b);
+                if (a < Board.HIGH_WORD_BIG_SQUARE) {
+                    if (tile == 1) {
+                        blackLow |= bit;
+                    } else {
+                        whiteLow |= bit;
+                    }
+                } else if (tile == 1) {
+                    blackHigh |= bit;
+                } else {
+                    whiteHigh |= bit;
+                }
+            }
+        }
+        putTiles(buffer, blackLow, blackHigh, whiteLow, whiteHigh);
+        buffer.put((byte) packState(boardData.bigSquareToPick, boardData.playerIdentity));
+    }
+
+    /**
+     * Decode a board without building an array of tiles.
+     *
+     * @param buffer the buffer to read {@value #BOARD_BYTES} bytes from.
+     * @return the board.
+     * @throws IllegalArgumentException if the bytes do not encode a board.
+     */
+    @NotNull
+    public static Board decodeBoard(@NotNull ByteBuffer buffer) {
+        long first = getBytes(buffer, 8), second = getBytes(buffer, 8);
+        long third = getBytes(buffer, TILE_BYTES - 16);
+        int state = buffer.get();
+        // The black plane takes bits 0 to 80 and the white plane bits 81 to 161.
+        long blackLow = first & LOW_WORD_MASK;
+        long blackHigh = (first >>> 63 | second << 1) & HIGH_WORD_MASK;
+        long whiteLow = (second >>> 17 | third << 47) & LOW_WORD_MASK;
+        long whiteHigh = third >>> 16;
+        if ((blackLow & whiteLow) != 0 || (blackHigh & whiteHigh) != 0
+                || whiteHigh > HIGH_WORD_MASK) {
+            throw new IllegalArgumentException("Bad tiles in the encoded board!");
+        }
+        if ((state & ~0x1F) != 0 || (state & 0xF) > 9) {
+            throw new IllegalArgumentException("Bad state in the encoded board!");
+        }
+        return Board.fromTiles(blackLow, blackHigh, whiteLow, whiteHigh,
+                (state & 0xF) - 1, (state & 0x10) == 0 ? 1 : -1);
+    }
+
+    /**
+     * Encode a server response.
+     *
+     * @param response the response.
+     * @param buffer the buffer to write {@value #RESPONSE_BYTES} bytes to.
+     */
+    public static void encode(@NotNull ServerResponse response, @NotNull ByteBuffer buffer) {
+        buffer.put((byte) response.move[0]);
+        buffer.put((byte) response.move[1]);
+        buffer.put((byte) response.winningPercentage);
+        int simulationCounter = response.simulationCounter;
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer.put((byte) (simulationCounter >>> shift));
+        }
+    }
+
+    /**
+     * Decode a server response.
+     *
+     * @param buffer the buffer to read {@value #RESPONSE_BYTES} bytes from.
+     * @return the response.
+     */
+    @NotNull
+    public static ServerResponse decodeResponse(@NotNull ByteBuffer buffer) {
+        int a = buffer.get(), b = buffer.get();
+        int winningPercentage = buffer.get();
+        int simulationCounter = 0;
+        for (int i = 0; i < 4; i++) {
+            simulationCounter = simulationCounter << 8 | buffer.get() & 0xFF;
+        }
+        return new ServerResponse(a, b, winningPercentage, simulationCounter);
+    }
+
+    /**
+     * @param bigSquareToPick the big square to pick, or -1 for everywhere.
+     * @param playerIdentity the current player identity, 1 or -1.
+     * @return the state byte.
+     */
+    private static int packState(int bigSquareToPick, int playerIdentity) {
+        return (bigSquareToPick + 1) | (playerIdentity == 1 ? 0 : 0x10);
+    }
+
+    /**
+     * Write the two bit planes of the tiles.
+     *
+     * @param buffer the buffer.
+     * @param blackLow the low tile word of black.
+     * @param blackHigh the high tile word of black.
+     * @param whiteLow the low tile word of white.
+     * @param whiteHigh the high tile word of white.
+     */
+    private static void putTiles(ByteBuffer buffer, long blackLow, long blackHigh,
+                                 long whiteLow, long whiteHigh) {
+        putBytes(buffer, blackLow | blackHigh << 63, 8);
+        putBytes(buffer, blackHigh >>> 1 | whiteLow << 17, 8);
+        putBytes(buffer, whiteLow >>> 47 | whiteHigh << 16, TILE_BYTES - 16);
+    }
+
+    /**
+     * @param buffer the buffer.
+     * @param value the bytes to write, lowest first.
+     * @param count the number of bytes to write.
+     */
+    private static void putBytes(ByteBuffer buffer, long value, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.put((byte) (value >>> (i * 8)));
+        }
+    }
+
+    /**
+     * @param buffer the buffer.
+     * @param count the number of bytes to read, lowest first.
+     * @return the bytes.
+     */
+    private static long getBytes(ByteBuffer buffer, int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value |= (buffer.get() & 0xFFL) << (i * 8);
+        }
+        return value;
+    }
+
+}
@@ -5,8 +5,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * An immutable representation of the game board.
@@ -16,57 +17,122 @@ public final class Board {
     /**
      * In variable names, a big square refers to a 3*3 square;
      * A tile refers to a 1*1 square.
-     * Each tile is either 1, -1 or 0 (black, white, empty).
-     * tiles[a * 9 + b] represents a tile at big square a and small square b.
+     * Tiles are stored as bitboards, one set of bits per player.
+     * Tile at big square a and small square b is bit a * 9 + b of the low word when a < 7,
+     * and bit (a - 7) * 9 + b of the high word otherwise, so that a big square never
+     * crosses a word boundary.
      */
-    private final int[] tiles;
+    private final long blackTilesLow, blackTilesHigh, whiteTilesLow, whiteTilesHigh;
     /**
      * Keep track of winning progress on big squares.
-     * 1, -1, 0, 2 mean black wins, white wins, inconclusive, and all occupied.
+     * Bit a is set in the corresponding mask when big square a is won by black, won by white, or
+     * all occupied without a winner.
      */
-    private final int[] bigSquaresStatusArray;
+    private final int blackBigSquares, whiteBigSquares, fullBigSquares;
     /**
-     * The current legal big square to pick as next move.
-     * If it's value is -1, that means the user can place the move everywhere.
-     * This variable is important for maintaining the current game state.
+     * The packed current legal big square to pick and the current player.
+     * The lower 4 bits store bigSquareToPick + 1, and bit 4 is set when white is the current
+     * player. See {@link #getBigSquareToPick()} and {@link #getPlayerIdentity()}.
      */
-    private final int bigSquareToPick;
+    private final int state;
     /**
-     * Winning big squares counter for black and white.
+     * The Zobrist hash of the position, see {@link Zobrist}.
      */
-    private final int blackBigSquaresCounter, whiteBigSquaresCounter;
+    private final long hash;
+
+    /**
+     * The first big square stored in the high tile word.
+     */
+    static final int HIGH_WORD_BIG_SQUARE = 7;
+    /**
+     * The mask for all tiles in one big square, or all big squares.
+     */
+    static final int SQUARE_MASK = 0x1FF;
     /**
-     * The identity of the current player. Must be 1 or -1.
+     * The base-3 value of every 9-bit tile mask, where a set bit i contributes 3^i.
+     * The base-3 encoding of a square is TERNARY[black] + 2 * TERNARY[white].
      */
-    private final int playerIdentity;
+    private static final int[] TERNARY = new int[SQUARE_MASK + 1];
+    /**
+     * The status of every 3*3 square indexed by its base-3 encoding, where each digit is 0, 1, 2
+     * for empty, black and white. The status follows {@link #squareStatus(int, int)}.
+     * The table is about 19KB, so it stays in cache during simulations.
+     */
+    private static final byte[] SQUARE_STATUS = new byte[19683];
+
+    static {
+        int[] lines = {
+                0b000_000_111, 0b000_111_000, 0b111_000_000,
+                0b001_001_001, 0b010_010_010, 0b100_100_100,
+                0b100_010_001, 0b001_010_100
+        };
+        for (int mask = 0; mask <= SQUARE_MASK; mask++) {
+            int value = 0;
+            for (int i = 8; i >= 0; i--) {
+                value = value * 3 + (mask >>> i & 1);
+            }
+            TERNARY[mask] = value;
+        }
+        for (int code = 0; code < SQUARE_STATUS.length; code++) {
+            int black = 0, white = 0;
+            for (int i = 0, rest = code; i < 9; i++, rest /= 3) {
+                int digit = rest % 3;
+                if (digit == 1) {
+                    black |= 1 << i;
+                } else if (digit == 2) {
+                    white |= 1 << i;
+                }
+            }
+            boolean blackWins = false, whiteWins = false;
+            for (int line : lines) {
+                blackWins |= (black & line) == line;
+                whiteWins |= (white & line) == line;
+            }
+            int status;
+            if (blackWins) {
+                status = 1;
+            } else if (whiteWins) {
+                status = -1;
+            } else {
+                status = (black | white) == SQUARE_MASK ? 2 : 0;
+            }
+            SQUARE_STATUS[code] = (byte) status;
+        }
+    }
 
     /**
      * Create an empty board.
      */
     private Board() {
-        this(new int[81], new int[9], -1,
-                0, 0, 1);
+        this(0, 0, 0, 0, 0, 0, 0,
+                packState(-1, 1), Zobrist.BIG_SQUARE_TO_PICK[0]);
     }
 
     /**
      * Construct a board with all its fields. Only used for internal construction.
      *
-     * @param tiles tiles as specified above.
-     * @param bigSquaresStatusArray bigSquaresStatusArray as specified above.
-     * @param bigSquareToPick bigSquareToPick as specified above.
-     * @param blackBigSquaresCounter blackBigSquaresCounter as specified above.
-     * @param whiteBigSquaresCounter whiteBigSquaresCounter as specified above.
-     * @param currentPlayerIdentity currentPlayerIdentity as specified above.
+     * @param blackTilesLow blackTilesLow as specified above.
+     * @param blackTilesHigh blackTilesHigh as specified above.
+     * @param whiteTilesLow whiteTilesLow as specified above.
+     * @param whiteTilesHigh whiteTilesHigh as specified above.
+     * @param blackBigSquares blackBigSquares as specified above.
+     * @param whiteBigSquares whiteBigSquares as specified above.
+     * @param fullBigSquares fullBigSquares as specified above.
+     * @param state state as specified above.
+     * @param hash hash as specified above.
      */
-    private Board(int[] tiles, int[] bigSquaresStatusArray, int bigSquareToPick,
-                  int blackBigSquaresCounter, int whiteBigSquaresCounter,
-                  int currentPlayerIdentity) {
-        this.tiles = tiles;
-        this.bigSquaresStatusArray = bigSquaresStatusArray;
-        this.bigSquareToPick = bigSquareToPick;
-        this.blackBigSquaresCounter = blackBigSquaresCounter;
-        this.whiteBigSquaresCounter = whiteBigSquaresCounter;
-        this.playerIdentity = currentPlayerIdentity;
+    private Board(long blackTilesLow, long blackTilesHigh, long whiteTilesLow, long whiteTilesHigh,
+                  int blackBigSquares, int whiteBigSquares, int fullBigSquares, int state,
+                  long hash) {
+        this.blackTilesLow = blackTilesLow;
+        this.blackTilesHigh = blackTilesHigh;
+        this.whiteTilesLow = whiteTilesLow;
+        this.whiteTilesHigh = whiteTilesHigh;
+        this.blackBigSquares = blackBigSquares;
+        this.whiteBigSquares = whiteBigSquares;
+        this.fullBigSquares = fullBigSquares;
+        this.state = state;
+        this.hash = hash;
     }
 
     /**
@@ -76,77 +142,231 @@ public final class Board {
      */
     public Board(BoardData boardData) {
         int[] tiles = boardData.tiles;
-        int[] bigSquaresStatusArray = new int[9];
-        for (int i = 0; i < 9; i++) {
-            bigSquaresStatusArray[i] = computeSquareStatus(tiles, i * 9);
+        long blackLow = 0, blackHigh = 0, whiteLow = 0, whiteHigh = 0;
+        for (int a = 0; a < 9; a++) {
+            for (int b = 0; b < 9; b++) {
+                int tile = tiles[a * 9 + b];
+                if (tile == 0) {
+                    continue;
+                }
+                long bit = 1L << (squareShift(a) + b);
+                if (a < HIGH_WORD_BIG_SQUARE) {
+                    if (tile == 1) {
+                        blackLow |= bit;
+                    } else {
+                        whiteLow |= bit;
+                    }
+                } else if (tile == 1) {
+                    blackHigh |= bit;
+                } else {
+                    whiteHigh |= bit;
+                }
+            }
         }
-        int blackBigSquaresCounter = 0;
-        int whiteBigSquaresCounter = 0;
-        for (int i = 0; i < 9; i++) {
-            int status = bigSquaresStatusArray[i];
+        int blackSquares = 0, whiteSquares = 0, fullSquares = 0;
+        for (int a = 0; a < 9; a++) {
+            int status = squareStatus(
+                    squareOf(blackLow, blackHigh, a), squareOf(whiteLow, whiteHigh, a));
             if (status == 1) {
-                blackBigSquaresCounter++;
+                blackSquares |= 1 << a;
             } else if (status == -1) {
-                whiteBigSquaresCounter++;
+                whiteSquares |= 1 << a;
+            } else if (status == 2) {
+                fullSquares |= 1 << a;
             }
         }
-        this.tiles = tiles;
-        this.bigSquaresStatusArray = bigSquaresStatusArray;
-        this.bigSquareToPick = boardData.bigSquareToPick;
-        this.blackBigSquaresCounter = blackBigSquaresCounter;
-        this.whiteBigSquaresCounter = whiteBigSquaresCounter;
-        this.playerIdentity = boardData.playerIdentity;
+        this.blackTilesLow = blackLow;
+        this.blackTilesHigh = blackHigh;
+        this.whiteTilesLow = whiteLow;
+        this.whiteTilesHigh = whiteHigh;
+        this.blackBigSquares = blackSquares;
+        this.whiteBigSquares = whiteSquares;
+        this.fullBigSquares = fullSquares;
+        this.state = packState(boardData.bigSquareToPick, boardData.playerIdentity);
+        this.hash = Zobrist.hash(tiles, boardData.bigSquareToPick, boardData.playerIdentity);
+    }
+
+    /**
+     * Construct a board directly from its tile words, without an array of tiles in between.
+     * The tile words follow the layout specified above and must not overlap.
+     *
+     * @param blackTilesLow the low tile word of black.
+     * @param blackTilesHigh the high tile word of black.
+     * @param whiteTilesLow the low tile word of white.
+     * @param whiteTilesHigh the high tile word of white.
+     * @param bigSquareToPick the big square to pick, or -1 for everywhere.
+     * @param playerIdentity the current player identity, 1 or -1.
+     * @return the board.
+     */
+    @NotNull
+    static Board fromTiles(long blackTilesLow, long blackTilesHigh, long whiteTilesLow,
+                           long whiteTilesHigh, int bigSquareToPick, int playerIdentity) {
+        int blackSquares = 0, whiteSquares = 0, fullSquares = 0;
+        long hash = Zobrist.BIG_SQUARE_TO_PICK[bigSquareToPick + 1];
+        if (playerIdentity != 1) {
+            hash ^= Zobrist.WHITE_TO_MOVE;
+        }
+        for (int a = 0; a < 9; a++) {
+            int black = squareOf(blackTilesLow, blackTilesHigh, a);
+            int white = squareOf(whiteTilesLow, whiteTilesHigh, a);
+            int status = squareStatus(black, white);
+            if (status == 1) {
+                blackSquares |= 1 << a;
+            } else if (status == -1) {
+                whiteSquares |= 1 << a;
+            } else if (status == 2) {
+                fullSquares |= 1 << a;
+            }
+            for (; black != 0; black &= black - 1) {
+                hash ^= Zobrist.TILES[a * 9 + Integer.numberOfTrailingZeros(black)];
+            }
+            for (; white != 0; white &= white - 1) {
+                hash ^= Zobrist.TILES[81 + a * 9 + Integer.numberOfTrailingZeros(white)];
+            }
+        }
+        return new Board(blackTilesLow, blackTilesHigh, whiteTilesLow, whiteTilesHigh,
+                blackSquares, whiteSquares, fullSquares,
+                packState(bigSquareToPick, playerIdentity), hash);
+    }
+
+    /**
+     * @return the low tile word of black.
+     */
+    long getBlackTilesLow() {
+        return blackTilesLow;
+    }
+
+    /**
+     * @return the high tile word of black.
+     */
+    long getBlackTilesHigh() {
+        return blackTilesHigh;
+    }
+
+    /**
+     * @return the low tile word of white.
+     */
+    long getWhiteTilesLow() {
+        return whiteTilesLow;
+    }
+
+    /**
+     * @return the high tile word of white.
+     */
+    long getWhiteTilesHigh() {
+        return whiteTilesHigh;
+    }
+
+    /**
+     * Pack the big square to pick and the player identity into one state word.
+     *
+     * @param bigSquareToPick the big square to pick, or -1 for everywhere.
+     * @param playerIdentity the current player identity, 1 or -1.
+     * @return the packed state.
+     */
+    private static int packState(int bigSquareToPick, int playerIdentity) {
+        return (bigSquareToPick + 1) | (playerIdentity == 1 ? 0 : 0x10);
+    }
+
+    /**
+     * @param a the big square.
+     * @return the position of the first tile of big square a in its tile word.
+     */
+    static int squareShift(int a) {
+        return a < HIGH_WORD_BIG_SQUARE ? a * 9 : (a - HIGH_WORD_BIG_SQUARE) * 9;
+    }
+
+    /**
+     * Extract the 9-bit tiles mask of big square a from a pair of tile words.
+     *
+     * @param low the low tile word.
+     * @param high the high tile word.
+     * @param a the big square.
+     * @return the 9-bit mask of the tiles in the big square.
+     */
+    static int squareOf(long low, long high, int a) {
+        long word = a < HIGH_WORD_BIG_SQUARE ? low : high;
+        return (int) (word >>> squareShift(a)) & SQUARE_MASK;
     }
 
     /**
      * @return the current player identity.
      */
     int getPlayerIdentity() {
-        return playerIdentity;
+        return (state & 0x10) == 0 ? 1 : -1;
     }
 
     /**
-     * Perform a naive check on the square about whether the player with id win the square.
-     * Rule:  primitive tic-tac-toe.
+     * @return the Zobrist hash of the position.
+     */
+    long getHash() {
+        return hash;
+    }
+
+    /**
+     * Compute the Zobrist hash of the position transformed by a symmetry of the 3x3 grid, which
+     * is applied to both the big square and the small square index of every tile.
      *
-     * @param s the array that contains a slice of the square.
-     * @param offset the offset.
-     * @param id id to compare against
-     * @return whether the player wins the square.
+     * @param symmetry the new index of every index of the 3x3 grid.
+     * @return the hash of the transformed position.
+     */
+    long getSymmetricHash(int[] symmetry) {
+        int bigSquareToPick = getBigSquareToPick();
+        long symmetricHash = Zobrist.BIG_SQUARE_TO_PICK[
+                bigSquareToPick == -1 ? 0 : symmetry[bigSquareToPick] + 1];
+        if (getPlayerIdentity() != 1) {
+            symmetricHash ^= Zobrist.WHITE_TO_MOVE;
+        }
+        for (int a = 0; a < 9; a++) {
+            int offset = symmetry[a] * 9;
+            for (int black = squareOf(blackTilesLow, blackTilesHigh, a); black != 0;
+                 black &= black - 1) {
+                symmetricHash ^= Zobrist.TILES[
+                        offset + symmetry[Integer.numberOfTrailingZeros(black)]];
+            }
+            for (int white = squareOf(whiteTilesLow, whiteTilesHigh, a); white != 0;
+                 white &= white - 1) {
+                symmetricHash ^= Zobrist.TILES[
+                        81 + offset + symmetry[Integer.numberOfTrailingZeros(white)]];
+            }
+        }
+        return symmetricHash;
+    }
+
+    /**
+     * @return the current legal big square to pick, or -1 if the player can move everywhere.
      */
-    private static boolean playerSimplyWinSquare(int[] s, int offset, int id) {
-        return s[offset] == id && s[offset + 1] == id && s[offset + 2] == id
-                || s[offset + 3] == id && s[offset + 4] == id && s[offset + 5] == id
-                || s[offset + 6] == id && s[offset + 7] == id && s[offset + 8] == id
-                || s[offset] == id && s[offset + 3] == id && s[offset + 6] == id
-                || s[offset + 1] == id && s[offset + 4] == id && s[offset + 7] == id
-                || s[offset + 2] == id && s[offset + 5] == id && s[offset + 8] == id
-                || s[offset] == id && s[offset + 4] == id && s[offset + 8] == id
-                || s[offset + 2] == id && s[offset + 4] == id && s[offset + 6] == id;
+    int getBigSquareToPick() {
+        return (state & 0xF) - 1;
     }
 
     /**
-     * A function that helps to determine whether a square with offset belongs
-     * to black (1) or white (-1).
-     * If all tiles are occupied, it returns 2; else (there is no direct victory), it returns 0.
+     * Returns the tile at a given index.
      *
-     * @param square the array that contains a slice of the square.
-     * @param offset the offset.
-     * @return the square status as specified above.
+     * @param i index in the form of a * 9 + b.
+     * @return 1, -1 or 0 for black, white or empty.
      */
-    private static int computeSquareStatus(int[] square, int offset) {
-        if (playerSimplyWinSquare(square, offset, 1)) {
+    private int getTile(int i) {
+        int a = i / 9, b = i % 9;
+        if ((squareOf(blackTilesLow, blackTilesHigh, a) >>> b & 1) != 0) {
             return 1;
-        } else if (playerSimplyWinSquare(square, offset, -1)) {
+        } else if ((squareOf(whiteTilesLow, whiteTilesHigh, a) >>> b & 1) != 0) {
             return -1;
         }
-        for (int i = 0; i < 9; i++) {
-            if (square[offset + i] == 0) {
-                // there is a space left.
-                return 0;
-            }
-        }
-        return 2;
+        return 0;
+    }
+
+    /**
+     * Determine whether a square belongs to black (1) or white (-1) with a table lookup.
+     * If all tiles are occupied, it returns 2; else (there is no direct victory), it returns 0.
+     * Rule:  primitive tic-tac-toe.
+     *
+     * @param black the 9-bit mask of the tiles owned by black.
+     * @param white the 9-bit mask of the tiles owned by white.
+     * @return the square status as specified above.
+     */
+    static int squareStatus(int black, int white) {
+        return SQUARE_STATUS[TERNARY[black] + 2 * TERNARY[white]];
     }
 
     /**
@@ -161,21 +381,40 @@ public final class Board {
             // Out of boundary values
             return false;
         }
+        int bigSquareToPick = getBigSquareToPick();
         if (bigSquareToPick != -1 && bigSquareToPick != a) {
             // in the wrong big square when it cannot have a free move
             return false;
         } else {
             // not in the occupied big square and on an empty tile
-            return bigSquaresStatusArray[a] == 0 && tiles[a * 9 + b] == 0;
+            int closedBigSquares = blackBigSquares | whiteBigSquares | fullBigSquares;
+            return (closedBigSquares >>> a & 1) == 0 && getTile(a * 9 + b) == 0;
         }
     }
 
+    /**
+     * Check that a board can be searched.
+     *
+     * @param board the board.
+     * @return the board.
+     * @throws IllegalArgumentException if the player to move has no legal move, like on a board
+     * that must be picked in a closed big square.
+     */
+    @NotNull
+    static Board requireLegalMoves(@NotNull Board board) {
+        if (board.getAllLegalMovesForAI().isEmpty()) {
+            throw new IllegalArgumentException("The board has no legal move!");
+        }
+        return board;
+    }
+
     /**
      * @return a list of all legal moves for AI.
      */
     @SuppressWarnings("Duplicates")
     List<Move> getAllLegalMovesForAI() {
         List<Move> list = new ArrayList<>(40);
+        int bigSquareToPick = getBigSquareToPick();
         if (bigSquareToPick == -1) {
             // Can move in every big square
             for (int i = 0; i < 9; i++) {
@@ -209,23 +448,42 @@ public final class Board {
      */
     @NotNull
     Board makeMoveWithoutCheck(Move move) {
-        int[] newTiles = Arrays.copyOf(tiles, 81);
         int a = move.a, b = move.b;
-        newTiles[a * 9 + b] = playerIdentity;
-        int[] newBigSquareStatusArray = Arrays.copyOf(bigSquaresStatusArray, 9);
-        int newBigSquareStatus = computeSquareStatus(newTiles, a * 9);
-        newBigSquareStatusArray[a] = newBigSquareStatus;
-        int newBigSquareToPick = newBigSquareStatusArray[b] == 0 ? b : -1;
-        int blackCounter = blackBigSquaresCounter;
-        int whiteCounter = whiteBigSquaresCounter;
+        long bit = 1L << (squareShift(a) + b);
+        long blackLow = blackTilesLow, blackHigh = blackTilesHigh;
+        long whiteLow = whiteTilesLow, whiteHigh = whiteTilesHigh;
+        boolean isBlack = (state & 0x10) == 0;
+        if (a < HIGH_WORD_BIG_SQUARE) {
+            if (isBlack) {
+                blackLow |= bit;
+            } else {
+                whiteLow |= bit;
+            }
+        } else if (isBlack) {
+            blackHigh |= bit;
+        } else {
+            whiteHigh |= bit;
+        }
+        int newBigSquareStatus = squareStatus(
+                squareOf(blackLow, blackHigh, a), squareOf(whiteLow, whiteHigh, a));
+        int blackSquares = blackBigSquares, whiteSquares = whiteBigSquares;
+        int fullSquares = fullBigSquares;
         if (newBigSquareStatus == 1) {
-            blackCounter++;
+            blackSquares |= 1 << a;
         } else if (newBigSquareStatus == -1) {
-            whiteCounter++;
+            whiteSquares |= 1 << a;
+        } else if (newBigSquareStatus == 2) {
+            fullSquares |= 1 << a;
         }
+        int closedSquares = blackSquares | whiteSquares | fullSquares;
+        int newBigSquareToPick = (closedSquares >>> b & 1) == 0 ? b : -1;
+        // Flipping bit 4 switches the player; the lower bits are replaced by the new square.
+        int newState = ((state ^ 0x10) & 0x10) | (newBigSquareToPick + 1);
+        long newHash = hash ^ Zobrist.moveDelta(
+                a * 9 + b, isBlack, getBigSquareToPick(), newBigSquareToPick);
         return new Board(
-                newTiles, newBigSquareStatusArray, newBigSquareToPick,
-                blackCounter, whiteCounter, -playerIdentity
+                blackLow, blackHigh, whiteLow, whiteHigh,
+                blackSquares, whiteSquares, fullSquares, newState, newHash
         );
     }
 
@@ -245,11 +503,57 @@ public final class Board {
      * @return the game status on current board.
      */
     int getGameStatus() {
-        int simpleStatus = computeSquareStatus(bigSquaresStatusArray, 0);
-        if (simpleStatus != 2) {
+        return gameStatus(blackBigSquares, whiteBigSquares, fullBigSquares);
+    }
+
+    /**
+     * Returns the game status from the big square masks.
+     * The status must be 1, -1, or 0 (inconclusive).
+     *
+     * @param blackBigSquares big squares won by black.
+     * @param whiteBigSquares big squares won by white.
+     * @param fullBigSquares big squares all occupied without a winner.
+     * @return the game status.
+     */
+    static int gameStatus(int blackBigSquares, int whiteBigSquares, int fullBigSquares) {
+        int simpleStatus = squareStatus(blackBigSquares, whiteBigSquares);
+        if (simpleStatus == 1 || simpleStatus == -1) {
             return simpleStatus;
         }
-        return blackBigSquaresCounter > whiteBigSquaresCounter ? 1 : -1;
+        if ((blackBigSquares | whiteBigSquares | fullBigSquares) != SQUARE_MASK) {
+            // Squares that are all occupied without a winner do not count for either player.
+            return 0;
+        }
+        return Integer.bitCount(blackBigSquares) > Integer.bitCount(whiteBigSquares) ? 1 : -1;
+    }
+
+    /**
+     * Copy the state of this board into a mutable playout board.
+     *
+     * @param playoutBoard the board to overwrite.
+     */
+    void copyInto(@NotNull PlayoutBoard playoutBoard) {
+        playoutBoard.set(blackTilesLow, blackTilesHigh, whiteTilesLow, whiteTilesHigh,
+                blackBigSquares, whiteBigSquares, fullBigSquares, state, hash);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Board)) {
+            return false;
+        }
+        Board board = (Board) o;
+        return blackTilesLow == board.blackTilesLow && blackTilesHigh == board.blackTilesHigh
+                && whiteTilesLow == board.whiteTilesLow && whiteTilesHigh == board.whiteTilesHigh
+                && state == board.state;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
     }
 
     /**
@@ -258,7 +562,7 @@ public final class Board {
      * @param i index.
      */
     private void printTileContent(int i) {
-        int c = tiles[i];
+        int c = getTile(i);
         if (c == 1) {
             System.out.print('b');
         } else if (c == -1) {
@@ -274,7 +578,7 @@ public final class Board {
      * Print the board.
      */
     private void print() {
-        System.out.println(playerIdentity == 1 ? "Current Player: Black" : "Current Player: White");
+        System.out.println(getPlayerIdentity() == 1 ? "Current Player: Black" : "Current Player: White");
         System.out.println("Printing the board:");
         System.out.println("-----------------");
         for (int row = 0; row < 3; row++) {
@@ -306,46 +610,110 @@ public final class Board {
     }
 
     /**
-     * Respond to a client move.
+     * Respond to a client move. Positions in the opening book given by the system property
+     * {@value OpeningBook#PATH_PROPERTY} are answered without searching, and decisions of
+     * searched positions are kept in the {@link DecisionCache#getDefault() decision cache}.
      *
      * @param clientBoard the board of the client.
      * @return the server response.
+     * @throws IllegalArgumentException if the board has no legal move.
      */
     @NotNull
     public static ServerResponse respondToClient(@NotNull BoardData clientBoard) {
-        Board board = new Board(clientBoard);
-        // Let AI think
-        Decision decision = MCTS.selectMove(board, 1500);
-        // A full response.
-        return new ServerResponse(
-                decision.move, decision.winningPercentage, decision.simulationCounter);
+        Board board = requireLegalMoves(new Board(clientBoard));
+        // Answer early positions from the opening book without searching.
+        OpeningBook book = OpeningBook.getDefault();
+        if (book != null) {
+            ServerResponse response = book.lookup(board);
+            if (response != null) {
+                return response;
+            }
+        }
+        // Let AI think, unless the position was decided before or is being decided now.
+        return DecisionCache.getDefault().respond(board, position -> {
+            Decision decision = MCTS.selectMove(position, 1500);
+            return new ServerResponse(
+                    decision.move, decision.winningPercentage, decision.simulationCounter);
+        });
+    }
+
+    /**
+     * Set the listener of the metrics of every search, for monitoring. Searches also emit
+     * {@code com.developersam.game.ten.Search} events to the Flight Recorder when it is enabled.
+     *
+     * @param listener the listener, or null to stop listening.
+     */
+    public static void setSearchListener(@Nullable SearchListener listener) {
+        MCTS.setDefaultListener(listener);
     }
 
     /**
-     * Run a game between two AIs.
+     * Respond to a client move in the background, streaming the best move found so far.
+     * Cancelling the returned future stops the search, so a disconnected client does not keep
+     * the workers busy.
+     *
+     * @param clientBoard the board of the client.
+     * @param snapshotInterval the interval between progress updates in milliseconds.
+     * @param progress the listener of progress updates, called from a shared progress thread.
+     * @return the future server response.
+     * @throws IllegalArgumentException if the board has no legal move.
+     */
+    @NotNull
+    public static CompletableFuture<ServerResponse> respondToClientAsync(
+            @NotNull BoardData clientBoard, long snapshotInterval,
+            @NotNull Consumer<ServerResponse> progress) {
+        CompletableFuture<Decision> decision = MCTS.selectMoveAsync(
+                requireLegalMoves(new Board(clientBoard)), SearchConfig.DEFAULT, snapshotInterval,
+                snapshot -> progress.accept(new ServerResponse(
+                        snapshot.move, snapshot.winningPercentage, snapshot.simulationCounter)));
+        CompletableFuture<ServerResponse> response = new CompletableFuture<>();
+        decision.whenComplete((result, error) -> {
+            if (error != null) {
+                response.completeExceptionally(error);
+            } else {
+                response.complete(new ServerResponse(
+                        result.move, result.winningPercentage, result.simulationCounter));
+            }
+        });
+        response.whenComplete((result, error) -> {
+            if (response.isCancelled()) {
+                decision.cancel(false);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Run a game between two AIs. Each AI keeps its search tree between its moves.
      *
      * @param timeLimit time limit in milliseconds.
      */
     static void runAGameBetweenTwoAIs(long timeLimit) {
-        Board board = new Board();
-        int moveCounter = 1;
-        int status = 0;
-        while (status == 0) {
+        SearchConfig config = SearchConfig.DEFAULT.withTimeLimit(timeLimit).withListener(
+                metrics -> System.out.println("# of simulations: " + metrics.getSimulations()));
+        try (GameSession black = new GameSession(config, GameSession.DEFAULT_IDLE_TIMEOUT);
+             GameSession white = new GameSession(config, GameSession.DEFAULT_IDLE_TIMEOUT)) {
+            Board board = new Board();
+            int moveCounter = 1;
+            int status = 0;
+            while (status == 0) {
+                board.print();
+                GameSession session = moveCounter % 2 == 0 ? white : black;
+                Decision decision = session.selectMove(board);
+                board = board.makeMoveWithoutCheck(decision.move);
+                status = board.getGameStatus();
+                System.out.format("Move %d finished.\n", moveCounter);
+                String player = moveCounter % 2 == 0 ? "White" : "Black";
+                System.out.format("Winning Probability for %s is %d%%.\n",
+                        player, decision.winningPercentage);
+                moveCounter++;
+            }
             board.print();
-            Decision decision = MCTS.selectMove(board, timeLimit);
-            board = board.makeMoveWithoutCheck(decision.move);
-            status = board.getGameStatus();
-            System.out.format("Move %d finished.\n", moveCounter);
-            String player = moveCounter % 2 == 0 ? "White" : "Black";
-            System.out.format("Winning Probability for %s is %d%%.\n",
-                    player, decision.winningPercentage);
-            moveCounter++;
-        }
-        board.print();
-        if (status == 1) {
-            System.out.println("Black wins!");
-        } else {
-            System.out.println("White wins!");
+            if (status == 1) {
+                System.out.println("Black wins!");
+            } else {
+                System.out.println("White wins!");
+            }
         }
     }
 
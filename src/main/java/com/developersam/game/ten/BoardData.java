@@ -28,4 +28,17 @@ public final class BoardData {
         playerIdentity = -1;
     }
 
+    /**
+     * Construct a board data with all its fields. Only used for internal construction.
+     *
+     * @param tiles the raw tiles.
+     * @param bigSquareToPick the big square to pick.
+     * @param playerIdentity the identity of AI.
+     */
+    BoardData(int[] tiles, int bigSquareToPick, int playerIdentity) {
+        this.tiles = tiles;
+        this.bigSquareToPick = bigSquareToPick;
+        this.playerIdentity = playerIdentity;
+    }
+
 }
@@ -0,0 +1,243 @@
+package com.developersam.game.ten;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of decisions in front of the searches of {@link Board#respondToClient}.
+ * <p>
+ * Decisions are keyed by the canonical hash of {@link OpeningBook}, so symmetric positions share
+ * one entry, and are stored in the orientation of the canonical position like the entries of the
+ * book. The least recently used decision is evicted when the cache is full. A request for a
+ * position that is already being searched waits for that search instead of starting another one.
+ * The size of the default cache is given by the system property {@value #SIZE_PROPERTY}, where 0
+ * disables it.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class DecisionCache {
+
+    /**
+     * The system property with the number of decisions of the default cache.
+     */
+    static final String SIZE_PROPERTY = "com.developersam.game.ten.decisionCacheSize";
+    /**
+     * The default number of decisions of the default cache.
+     */
+    private static final int DEFAULT_SIZE = 4096;
+
+    /**
+     * The maximum number of decisions.
+     */
+    private final int maxSize;
+    /**
+     * The decisions in access order, guarded by its own lock.
+     */
+    private final LinkedHashMap<Long, OpeningBook.Entry> decisions;
+    /**
+     * The searches in progress by canonical hash.
+     */
+    private final ConcurrentHashMap<Long, CompletableFuture<OpeningBook.Entry>> searches =
+            new ConcurrentHashMap<>();
+    /**
+     * The number of requests answered from the cache.
+     */
+    private final AtomicLong hits = new AtomicLong();
+    /**
+     * The number of requests that started a search.
+     */
+    private final AtomicLong misses = new AtomicLong();
+    /**
+     * The number of requests that waited for the search of another request.
+     */
+    private final AtomicLong joins = new AtomicLong();
+    /**
+     * The number of decisions evicted.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize the maximum number of decisions, or 0 to never keep a decision. Searches in
+     * progress are still shared.
+     */
+    DecisionCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Cache size must be non-negative!");
+        }
+        this.maxSize = maxSize;
+        this.decisions = new LinkedHashMap<Long, OpeningBook.Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, OpeningBook.Entry> eldest) {
+                if (size() <= DecisionCache.this.maxSize) {
+                    return false;
+                }
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return the cache used by {@link Board#respondToClient}.
+     */
+    @NotNull
+    public static DecisionCache getDefault() {
+        return DefaultHolder.CACHE;
+    }
+
+    /**
+     * Find the decision of a board in the cache, without waiting for a search in progress.
+     *
+     * @param board the board.
+     * @return the response with the move mapped to the orientation of the board, or null if the
+     * board has no decision in the cache.
+     */
+    @Nullable
+    ServerResponse lookup(@NotNull Board board) {
+        int symmetry = OpeningBook.canonicalSymmetry(board);
+        OpeningBook.Entry entry = get(board.getSymmetricHash(OpeningBook.SYMMETRIES[symmetry]));
+        if (entry == null) {
+            return null;
+        }
+        hits.incrementAndGet();
+        return toResponse(entry, symmetry);
+    }
+
+    /**
+     * Answer a board from the cache, from a search of the same position in progress, or from a
+     * new search whose decision is then kept.
+     *
+     * @param board the board.
+     * @param search the search to run on a miss, called on the calling thread.
+     * @return the response with the move mapped to the orientation of the board.
+     */
+    @NotNull
+    ServerResponse respond(@NotNull Board board,
+                           @NotNull Function<Board, ServerResponse> search) {
+        int symmetry = OpeningBook.canonicalSymmetry(board);
+        long key = board.getSymmetricHash(OpeningBook.SYMMETRIES[symmetry]);
+        OpeningBook.Entry entry = get(key);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return toResponse(entry, symmetry);
+        }
+        CompletableFuture<OpeningBook.Entry> own = new CompletableFuture<>();
+        CompletableFuture<OpeningBook.Entry> running = searches.putIfAbsent(key, own);
+        if (running != null) {
+            joins.incrementAndGet();
+            return toResponse(running.join(), symmetry);
+        }
+        try {
+            // The search of another request may have finished since the first lookup.
+            entry = get(key);
+            if (entry != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                ServerResponse response = search.apply(board);
+                entry = new OpeningBook.Entry(board, new Move(response.move[0], response.move[1]),
+                        response.winningPercentage, response.simulationCounter);
+                if (maxSize > 0) {
+                    synchronized (decisions) {
+                        decisions.put(key, entry);
+                    }
+                }
+            }
+            own.complete(entry);
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            searches.remove(key, own);
+        }
+        return toResponse(entry, symmetry);
+    }
+
+    /**
+     * @param key the canonical hash of a position.
+     * @return the decision of the position, or null if it is not in the cache.
+     */
+    @Nullable
+    private OpeningBook.Entry get(long key) {
+        synchronized (decisions) {
+            return decisions.get(key);
+        }
+    }
+
+    /**
+     * @param entry a decision in the orientation of the canonical position.
+     * @param symmetry the symmetry that transforms the board into its canonical position.
+     * @return the response in the orientation of the board.
+     */
+    private static ServerResponse toResponse(OpeningBook.Entry entry, int symmetry) {
+        return new ServerResponse(OpeningBook.inverseTransform(entry.move, symmetry),
+                entry.winningPercentage, entry.simulations);
+    }
+
+    /**
+     * @return the number of decisions in the cache.
+     */
+    public int size() {
+        synchronized (decisions) {
+            return decisions.size();
+        }
+    }
+
+    /**
+     * @return the maximum number of decisions.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of requests answered from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests that started a search.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of requests that waited for the search of another request for the same
+     * position instead of starting their own.
+     */
+    public long getJoins() {
+        return joins.get();
+    }
+
+    /**
+     * @return the number of decisions evicted to make room for newer ones.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * The lazily created default cache.
+     */
+    private static final class DefaultHolder {
+
+        /**
+         * The default cache.
+         */
+        private static final DecisionCache CACHE =
+                new DecisionCache(Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE));
+
+    }
+
+}
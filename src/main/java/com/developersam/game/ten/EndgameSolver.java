@@ -0,0 +1,173 @@
+package com.developersam.game.ten;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * An exact solver of endgame positions on playout boards.
+ * <p>
+ * A game never ends in a draw, so the solver only needs to know whether the player to move wins:
+ * a player wins if one of the moves leads to a position that the opponent loses. Moves that win
+ * the game at once are tried before any move is searched deeper. Solved positions are kept in a
+ * small table indexed by their Zobrist hash across the solves of one search. A solve gives up
+ * after a fixed number of positions, so that a worker is never blocked for long by a position
+ * that is too large. Since the table decides which positions count towards that limit, it is
+ * cleared between searches, so that a search gives the same results whatever ran before it on
+ * the same thread. A solver is not thread safe.
+ */
+final class EndgameSolver {
+
+    /**
+     * The number of positions after which a solve gives up.
+     */
+    static final int NODE_LIMIT = 200_000;
+    /**
+     * The result of a position that the solver gave up on.
+     */
+    private static final int UNKNOWN = 0;
+    /**
+     * The result of a position that the player to move wins.
+     */
+    private static final int WIN = 1;
+    /**
+     * The result of a position that the player to move loses.
+     */
+    private static final int LOSS = 2;
+    /**
+     * The number of bits of the index of the table of solved positions.
+     */
+    private static final int TABLE_BITS = 16;
+    /**
+     * The mask of the result stored in the low bits of a table entry.
+     */
+    private static final long RESULT_MASK = 3;
+
+    /**
+     * The board of every ply of the search. A game has at most 81 moves.
+     */
+    private final PlayoutBoard[] boards = new PlayoutBoard[82];
+    /**
+     * The solved positions, each stored as its hash with the result in the low bits.
+     */
+    private final long[] table = new long[1 << TABLE_BITS];
+    /**
+     * The number of positions visited by the current solve.
+     */
+    private int nodes;
+
+    /**
+     * Create a solver.
+     */
+    EndgameSolver() {
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = new PlayoutBoard();
+        }
+    }
+
+    /**
+     * Forget all solved positions.
+     */
+    void clear() {
+        Arrays.fill(table, 0);
+    }
+
+    /**
+     * Solve a position whose game has not ended.
+     *
+     * @param board the board, which is left unchanged.
+     * @return the identity of the winner with perfect play, or 0 if the solver gave up.
+     */
+    int solve(@NotNull PlayoutBoard board) {
+        boards[0].copyFrom(board);
+        nodes = 0;
+        int result = search(0);
+        if (result == UNKNOWN) {
+            return 0;
+        }
+        int player = board.getPlayerIdentity();
+        return result == WIN ? player : -player;
+    }
+
+    /**
+     * @param ply the ply of the board to search, whose game has not ended.
+     * @return the result for the player to move.
+     */
+    private int search(int ply) {
+        PlayoutBoard board = boards[ply];
+        long hash = board.getHash();
+        int index = (int) (hash >>> (64 - TABLE_BITS));
+        long entry = table[index];
+        if (entry != 0 && (entry & ~RESULT_MASK) == (hash & ~RESULT_MASK)) {
+            return (int) (entry & RESULT_MASK);
+        }
+        if (++nodes > NODE_LIMIT) {
+            return UNKNOWN;
+        }
+        int player = board.getPlayerIdentity();
+        PlayoutBoard child = boards[ply + 1];
+        long low = board.legalMovesLow(), high = board.legalMovesHigh();
+        // The moves that do not end the game, to be searched after no move wins at once.
+        long openLow = 0, openHigh = 0;
+        for (long moves = low; moves != 0; moves &= moves - 1) {
+            int status = tryMove(board, child, Long.numberOfTrailingZeros(moves));
+            if (status == player) {
+                return store(index, hash, WIN);
+            } else if (status == 0) {
+                openLow |= moves & -moves;
+            }
+        }
+        for (long moves = high; moves != 0; moves &= moves - 1) {
+            int status = tryMove(board, child,
+                    PlayoutBoard.LOW_WORD_TILES + Long.numberOfTrailingZeros(moves));
+            if (status == player) {
+                return store(index, hash, WIN);
+            } else if (status == 0) {
+                openHigh |= moves & -moves;
+            }
+        }
+        boolean unknown = false;
+        for (; openLow != 0; openLow &= openLow - 1) {
+            tryMove(board, child, Long.numberOfTrailingZeros(openLow));
+            int result = search(ply + 1);
+            if (result == LOSS) {
+                return store(index, hash, WIN);
+            }
+            unknown |= result == UNKNOWN;
+        }
+        for (; openHigh != 0; openHigh &= openHigh - 1) {
+            tryMove(board, child,
+                    PlayoutBoard.LOW_WORD_TILES + Long.numberOfTrailingZeros(openHigh));
+            int result = search(ply + 1);
+            if (result == LOSS) {
+                return store(index, hash, WIN);
+            }
+            unknown |= result == UNKNOWN;
+        }
+        return unknown ? UNKNOWN : store(index, hash, LOSS);
+    }
+
+    /**
+     * @param board the board.
+     * @param child the board to overwrite with the board after the move.
+     * @param move the move.
+     * @return the game status after the move.
+     */
+    private static int tryMove(PlayoutBoard board, PlayoutBoard child, int move) {
+        child.copyFrom(board);
+        child.makeMove(move);
+        return child.getGameStatus();
+    }
+
+    /**
+     * @param index the index of the position in the table.
+     * @param hash the hash of the position.
+     * @param result the result of the position.
+     * @return the result.
+     */
+    private int store(int index, long hash, int result) {
+        table[index] = (hash & ~RESULT_MASK) | result;
+        return result;
+    }
+
+}
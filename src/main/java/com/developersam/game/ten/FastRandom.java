@@ -0,0 +1,75 @@
+package com.developersam.game.ten;
+
+/**
+ * A small and fast xoshiro256** random number generator for random playouts.
+ * It is not thread safe. Each worker thread keeps its own instance and reseeds it before every
+ * playout, so that the playouts of a search are determined only by the seed of the search and
+ * not by which thread runs them.
+ */
+final class FastRandom {
+
+    /**
+     * The generator state.
+     */
+    private long s0, s1, s2, s3;
+
+    /**
+     * Create a generator with a seed.
+     *
+     * @param seed the seed.
+     */
+    FastRandom(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * Reset the state from a seed. Nearby seeds give unrelated sequences.
+     *
+     * @param seed the seed.
+     */
+    void setSeed(long seed) {
+        // Fill the state with splitmix64 as recommended by the authors of xoshiro.
+        long x = seed;
+        s0 = mix(x += 0x9E3779B97F4A7C15L);
+        s1 = mix(x += 0x9E3779B97F4A7C15L);
+        s2 = mix(x += 0x9E3779B97F4A7C15L);
+        s3 = mix(x + 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * @param z a value.
+     * @return the splitmix64 mixed value.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return the next random long.
+     */
+    long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    /**
+     * Returns a random int in [0, bound) by multiplying the high 32 bits with the bound.
+     * The bias is at most bound / 2^32, which is negligible for the bounds used in the game.
+     *
+     * @param bound the exclusive upper bound. Must be positive.
+     * @return the random int.
+     */
+    int nextInt(int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+}
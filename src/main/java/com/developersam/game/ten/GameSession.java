@@ -0,0 +1,505 @@
+package com.developersam.game.ten;
+
+import com.developersam.game.ten.MCTS.Decision;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.developersam.game.ten.NodePool.NONE;
+
+/**
+ * A search handle for one game that keeps the search tree between moves.
+ * <p>
+ * After the AI has moved and the opponent has replied, the next board is usually a grandchild of
+ * the previous root, so the search continues from that subtree with all its simulations instead
+ * of starting from scratch. The tree is released when the session is closed, when it has been
+ * idle for longer than the idle timeout, or when the session itself is garbage collected.
+ * <p>
+ * With pondering enabled, the session keeps searching on the opponent's time. After answering,
+ * it re-roots the tree at the board after its own move and searches the likely replies on one
+ * background thread, until the opponent's board arrives or the pondering time or node limit is
+ * reached. The next search then starts from the reply's subtree.
+ * <p>
+ * With a clock, the time limit of every move is planned from the time left on the clock of the
+ * AI, which is charged with the time of every answer and credited with the increment.
+ */
+public final class GameSession implements AutoCloseable {
+
+    /**
+     * The default idle timeout in milliseconds.
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 60_000;
+    /**
+     * The root of every tree.
+     */
+    private static final int ROOT = 0;
+    /**
+     * The length of a pondering slice in milliseconds, after which the node limit is checked.
+     */
+    private static final long PONDER_SLICE = 20;
+    /**
+     * The daemon thread that releases the trees of idle sessions.
+     */
+    private static final ScheduledExecutorService REAPER =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ten-session-reaper");
+                thread.setDaemon(true);
+                return thread;
+            });
+    /**
+     * The daemon threads that ponder, one per pondering session.
+     */
+    private static final ExecutorService PONDER = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ten-session-ponder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The search configuration. Root parallelism is ignored.
+     */
+    private final SearchConfig config;
+    /**
+     * The idle timeout in milliseconds.
+     */
+    private final long idleTimeout;
+    /**
+     * The periodic idle check of this session.
+     */
+    private final ScheduledFuture<?> idleCheck;
+    /**
+     * The current tree and the pool used when the tree is re-rooted. Null when released.
+     */
+    @Nullable
+    private NodePool pool, sparePool;
+    /**
+     * The board of the root of the current tree. Null when there is no tree.
+     */
+    @Nullable
+    private Board rootBoard;
+    /**
+     * The time of the last use in milliseconds.
+     */
+    private long lastUsed;
+    /**
+     * The number of simulations inherited from the previous search by the last search.
+     */
+    private long reusedSimulations;
+    /**
+     * Whether the session is closed.
+     */
+    private boolean closed;
+    /**
+     * Whether the time limits of moves come from the clock instead of the configuration.
+     */
+    private boolean clocked;
+    /**
+     * The time left on the clock of the AI in milliseconds.
+     */
+    private long remainingTime;
+    /**
+     * The time added to the clock of the AI after every move in milliseconds.
+     */
+    private long increment;
+    /**
+     * The maximum time of pondering after a move in milliseconds, or 0 without pondering.
+     */
+    private long ponderTimeLimit;
+    /**
+     * The maximum number of nodes of the tree, above which pondering stops.
+     */
+    private int ponderNodeLimit;
+    /**
+     * The control of the running pondering, or null when not pondering.
+     */
+    @Nullable
+    private SearchControl ponderControl;
+    /**
+     * The running pondering, or null when not pondering.
+     */
+    @Nullable
+    private Future<?> ponderTask;
+
+    /**
+     * Create a session with the default search configuration and idle timeout.
+     */
+    public GameSession() {
+        this(SearchConfig.DEFAULT, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Create a session with the default search configuration.
+     *
+     * @param idleTimeout the idle timeout in milliseconds.
+     */
+    public GameSession(long idleTimeout) {
+        this(SearchConfig.DEFAULT, idleTimeout);
+    }
+
+    /**
+     * Create a session.
+     *
+     * @param config the search configuration.
+     * @param idleTimeout the idle timeout in milliseconds.
+     */
+    GameSession(@NotNull SearchConfig config, long idleTimeout) {
+        if (idleTimeout <= 0) {
+            throw new IllegalArgumentException("Idle timeout must be positive!");
+        }
+        this.config = config;
+        this.idleTimeout = idleTimeout;
+        lastUsed = System.currentTimeMillis();
+        idleCheck = IdleCheck.schedule(this, idleTimeout);
+    }
+
+    /**
+     * Enable or disable pondering on the opponent's time. It uses one background thread, which
+     * stops as soon as the next board arrives.
+     *
+     * @param timeLimit the maximum time of pondering after a move in milliseconds, or 0 to
+     * disable pondering.
+     * @param nodeLimit the maximum number of nodes of the tree. Pondering stops at the first
+     * check after the tree has grown past it.
+     */
+    public synchronized void setPondering(long timeLimit, int nodeLimit) {
+        if (timeLimit < 0) {
+            throw new IllegalArgumentException("Pondering time limit must be non-negative!");
+        }
+        if (nodeLimit < 1) {
+            throw new IllegalArgumentException("Pondering node limit must be positive!");
+        }
+        ponderTimeLimit = timeLimit;
+        ponderNodeLimit = nodeLimit;
+        if (timeLimit == 0) {
+            stopPondering();
+        }
+    }
+
+    /**
+     * Play the rest of the game under a clock, which replaces the time limit of the
+     * configuration.
+     *
+     * @param remainingTime the time left on the clock of the AI in milliseconds.
+     * @param increment the time added to the clock after every move in milliseconds.
+     */
+    public synchronized void setClock(long remainingTime, long increment) {
+        if (remainingTime < 0 || increment < 0) {
+            throw new IllegalArgumentException("Clock times must be non-negative!");
+        }
+        clocked = true;
+        this.remainingTime = remainingTime;
+        this.increment = increment;
+    }
+
+    /**
+     * @return the time left on the clock of the AI in milliseconds.
+     */
+    public synchronized long getRemainingTime() {
+        if (!clocked) {
+            throw new IllegalStateException("The session has no clock!");
+        }
+        return remainingTime;
+    }
+
+    /**
+     * Respond to a client move, reusing the tree of the previous response when possible.
+     *
+     * @param clientBoard the board of the client.
+     * @return the server response.
+     * @throws IllegalArgumentException if the board has no legal move.
+     */
+    @NotNull
+    public ServerResponse respondToClient(@NotNull BoardData clientBoard) {
+        Decision decision = selectMove(new Board(clientBoard));
+        return new ServerResponse(
+                decision.move, decision.winningPercentage, decision.simulationCounter);
+    }
+
+    /**
+     * Give the final move chosen by AI, continuing from the previous tree when the board is
+     * reachable from its root within two moves. Under a clock, the time of the whole call is
+     * charged.
+     *
+     * @param board the board.
+     * @return the decision.
+     * @throws IllegalArgumentException if the board has no legal move.
+     */
+    @NotNull
+    synchronized Decision selectMove(@NotNull Board board) {
+        if (closed) {
+            throw new IllegalStateException("The session is closed!");
+        }
+        Board.requireLegalMoves(board);
+        long start = System.currentTimeMillis();
+        stopPondering();
+        if (pool == null || sparePool == null) {
+            pool = new NodePool();
+            sparePool = new NodePool();
+        }
+        int node = findReusableNode(board);
+        if (node == NONE) {
+            MCTS.resetTree(pool);
+            reusedSimulations = 0;
+        } else if (node != ROOT) {
+            // noinspection ConstantConditions
+            boolean flipWins = board.getPlayerIdentity() != rootBoard.getPlayerIdentity();
+            sparePool.copySubtree(pool, node, flipWins);
+            NodePool oldPool = pool;
+            pool = sparePool;
+            sparePool = oldPool;
+            sparePool.reset();
+            reusedSimulations = pool.visits(ROOT);
+        } else {
+            reusedSimulations = pool.visits(ROOT);
+        }
+        rootBoard = board;
+        SearchConfig moveConfig = clocked ? config.withTimeLimit(
+                TimeManager.clockTimeLimit(board, remainingTime, increment)) : config;
+        Decision decision = MCTS.selectMove(pool, board, moveConfig);
+        lastUsed = System.currentTimeMillis();
+        if (clocked) {
+            remainingTime = Math.max(remainingTime - (lastUsed - start), 0) + increment;
+        }
+        if (ponderTimeLimit > 0) {
+            startPondering(decision.move);
+        }
+        return decision;
+    }
+
+    /**
+     * Re-root the tree at the board after the AI move and keep searching it in the background.
+     * The copy of the subtree is done by the pondering thread, so that the answer is not delayed.
+     *
+     * @param move the move just chosen by AI.
+     */
+    private void startPondering(Move move) {
+        NodePool source = pool;
+        NodePool target = sparePool;
+        Board board = rootBoard;
+        if (source == null || target == null || board == null) {
+            return;
+        }
+        Board ponderBoard = board.makeMoveWithoutCheck(move);
+        int child = findChild(source, move.a * 9 + move.b);
+        if (child == NONE || ponderBoard.getGameStatus() != 0) {
+            return;
+        }
+        pool = target;
+        sparePool = source;
+        rootBoard = ponderBoard;
+        SearchControl control = new SearchControl();
+        long timeLimit = ponderTimeLimit;
+        int nodeLimit = ponderNodeLimit;
+        ponderControl = control;
+        ponderTask = PONDER.submit(() -> {
+            target.copySubtree(source, child, true);
+            source.reset();
+            long deadline = System.currentTimeMillis() + timeLimit;
+            FastRandom random = new FastRandom(ThreadLocalRandom.current().nextLong());
+            while (!control.isStopped() && target.size() < nodeLimit) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                MCTS.searchSlice(target, ponderBoard, Math.min(remaining, PONDER_SLICE),
+                        random, control);
+            }
+        });
+    }
+
+    /**
+     * Stop the running pondering and wait for it, so that its tree can be used again.
+     */
+    private void stopPondering() {
+        SearchControl control = ponderControl;
+        Future<?> task = ponderTask;
+        ponderControl = null;
+        ponderTask = null;
+        if (control == null || task == null) {
+            return;
+        }
+        control.stop();
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // The tree may still be in use, so start over from new pools.
+            release();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Pondering failed!", e.getCause());
+        }
+    }
+
+    /**
+     * @param pool a tree.
+     * @param move a move packed as a * 9 + b.
+     * @return the child of the root reached by the move, or {@link NodePool#NONE} if there is
+     * none or the move is untried.
+     */
+    private static int findChild(NodePool pool, int move) {
+        int firstEdge = pool.firstEdge(ROOT);
+        if (firstEdge < 0) {
+            return NONE;
+        }
+        int end = firstEdge + pool.edgeCount(ROOT);
+        for (int edge = firstEdge; edge < end; edge++) {
+            if (pool.edgeMove(edge) == move) {
+                int child = pool.edgeTarget(edge);
+                return child < 0 ? NONE : child;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Find the node of the current tree whose board is the given board, searching the root,
+     * its children and its grandchildren.
+     *
+     * @param board the board to find.
+     * @return the node, or {@link NodePool#NONE} if there is no such node.
+     */
+    private int findReusableNode(Board board) {
+        NodePool pool = this.pool;
+        Board rootBoard = this.rootBoard;
+        if (pool == null || rootBoard == null) {
+            return NONE;
+        }
+        if (rootBoard.equals(board)) {
+            return ROOT;
+        }
+        int firstEdge = pool.firstEdge(ROOT);
+        if (firstEdge < 0) {
+            return NONE;
+        }
+        int end = firstEdge + pool.edgeCount(ROOT);
+        for (int edge = firstEdge; edge < end; edge++) {
+            int child = pool.edgeTarget(edge);
+            if (child < 0) {
+                // The move is untried with progressive expansion.
+                continue;
+            }
+            Board childBoard = rootBoard.makeMoveWithoutCheck(toMove(pool.edgeMove(edge)));
+            if (childBoard.equals(board)) {
+                return child;
+            }
+            int firstGrandchildEdge = pool.firstEdge(child);
+            if (firstGrandchildEdge < 0) {
+                continue;
+            }
+            int grandchildrenEnd = firstGrandchildEdge + pool.edgeCount(child);
+            for (int grandchildEdge = firstGrandchildEdge; grandchildEdge < grandchildrenEnd;
+                 grandchildEdge++) {
+                Move move = toMove(pool.edgeMove(grandchildEdge));
+                if (childBoard.makeMoveWithoutCheck(move).equals(board)) {
+                    int grandchild = pool.edgeTarget(grandchildEdge);
+                    return grandchild < 0 ? NONE : grandchild;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @param move a move packed as a * 9 + b.
+     * @return the move object.
+     */
+    private static Move toMove(int move) {
+        return new Move(move / 9, move % 9);
+    }
+
+    /**
+     * @return the number of simulations inherited from the previous search by the last search.
+     */
+    synchronized long getReusedSimulations() {
+        return reusedSimulations;
+    }
+
+    /**
+     * Release the tree if the session has been idle for longer than the idle timeout.
+     * The session can still be used afterwards, starting from a new tree.
+     */
+    private synchronized void releaseIfIdle() {
+        if (System.currentTimeMillis() - lastUsed >= idleTimeout) {
+            stopPondering();
+            release();
+        }
+    }
+
+    /**
+     * Drop the tree and both pools.
+     */
+    private void release() {
+        pool = null;
+        sparePool = null;
+        rootBoard = null;
+    }
+
+    /**
+     * Release the tree and stop using the session.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        stopPondering();
+        release();
+        idleCheck.cancel(false);
+    }
+
+    /**
+     * The periodic idle check of a session. It only weakly refers to the session, so that an
+     * abandoned session can be garbage collected, and it cancels itself afterwards.
+     */
+    private static final class IdleCheck implements Runnable {
+
+        /**
+         * The session to check.
+         */
+        private final WeakReference<GameSession> session;
+        /**
+         * The scheduled check, used to cancel itself.
+         */
+        private volatile ScheduledFuture<?> future;
+
+        private IdleCheck(GameSession session) {
+            this.session = new WeakReference<>(session);
+        }
+
+        /**
+         * Schedule the idle check of a session.
+         *
+         * @param session the session.
+         * @param idleTimeout the idle timeout in milliseconds, which is also the check period.
+         * @return the scheduled check.
+         */
+        static ScheduledFuture<?> schedule(GameSession session, long idleTimeout) {
+            IdleCheck check = new IdleCheck(session);
+            check.future = REAPER.scheduleWithFixedDelay(
+                    check, idleTimeout, idleTimeout, TimeUnit.MILLISECONDS);
+            return check.future;
+        }
+
+        @Override
+        public void run() {
+            GameSession gameSession = session.get();
+            if (gameSession != null) {
+                gameSession.releaseIfIdle();
+                return;
+            }
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+
+    }
+
+}
@@ -3,121 +3,793 @@ package com.developersam.game.ten;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.developersam.game.ten.NodePool.NONE;
+import static com.developersam.game.ten.NodePool.PROVEN_LOSS;
+import static com.developersam.game.ten.NodePool.PROVEN_WIN;
 
 /**
  * The MCTS decider.
+ * <p>
+ * The search is tree-parallel: every worker thread runs selection, expansion, simulation and
+ * backpropagation on the same tree. Node statistics are updated atomically, children are
+ * installed with CAS, and virtual loss steers concurrent workers to different branches.
+ * <p>
+ * The tree is stored in a {@link NodePool} whose root is node 0. Edges only store moves, so
+ * every worker replays the selected moves from the root board on its own playout board.
+ * Transpositions are detected by Zobrist hash, which turns the tree into a DAG whose shared
+ * nodes pool the statistics of all move orders reaching them.
  */
 final class MCTS {
 
     /**
-     * The global random object.
+     * The root of every tree.
+     */
+    private static final int ROOT = 0;
+    /**
+     * The reusable playout board of every worker thread.
+     */
+    private static final ThreadLocal<PlayoutBoard> PLAYOUT_BOARD =
+            ThreadLocal.withInitial(PlayoutBoard::new);
+    /**
+     * The reusable random generator of every worker thread. It is reseeded before every playout.
+     */
+    private static final ThreadLocal<FastRandom> PLAYOUT_RANDOM =
+            ThreadLocal.withInitial(() -> new FastRandom(0));
+    /**
+     * The endgame solver of every worker thread, whose solved positions are cleared when the
+     * worker starts.
+     */
+    private static final ThreadLocal<EndgameSolver> SOLVER =
+            ThreadLocal.withInitial(EndgameSolver::new);
+    /**
+     * The reusable node pool of every thread that owns a search tree. The pool is reset at the
+     * start of every search, so the tree is garbage free across requests.
+     */
+    private static final ThreadLocal<NodePool> ARENA = ThreadLocal.withInitial(NodePool::new);
+    /**
+     * The shared pool of worker threads. Idle threads are kept for a while so that their thread
+     * local playout boards and node pools are reused across searches.
+     */
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ten-mcts-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * The thread that publishes the snapshots of asynchronous searches.
+     */
+    private static final ScheduledExecutorService PROGRESS =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ten-mcts-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+    /**
+     * The listener of all searches whose configuration has no listener, or null.
+     */
+    @Nullable
+    private static volatile SearchListener defaultListener;
+    /**
+     * The number of lost simulations temporarily added to every node on a path being searched.
+     */
+    private static final int VIRTUAL_LOSS = 3;
+
+    /**
+     * Get upper confidence bound in MCTS, which needs a [isPlayer] parameter
+     * to tell whether to calculate in favor or against the player.
+     *
+     * @param wins the winning probability numerator of the node.
+     * @param visits the winning probability denominator of the node.
+     * @param lnt the log of the winning probability denominator of the parent.
+     * @param isPlayer whether the user is player.
+     * @param exploration the exploration weight.
+     * @return the upper confidence bound.
+     */
+    private static double getUpperConfidenceBound(long wins, long visits, double lnt,
+                                                  boolean isPlayer, double exploration) {
+        double winningProb = ((double) wins) / ((double) visits);
+        if (!isPlayer) {
+            winningProb = 1 - winningProb;
+        }
+        return winningProb + Math.sqrt(exploration * lnt / visits);
+    }
+
+    /**
+     * Get upper confidence bound in MCTS with RAVE, where the winning probability is blended
+     * with the all-moves-as-first winning probability of the edge leading to the node.
+     *
+     * @param wins the winning probability numerator of the node.
+     * @param visits the winning probability denominator of the node.
+     * @param amafWins the all-moves-as-first winning probability numerator of the edge.
+     * @param amafVisits the all-moves-as-first winning probability denominator of the edge.
+     * @param lnt the log of the winning probability denominator of the parent.
+     * @param isPlayer whether the user is player.
+     * @param equivalence the RAVE equivalence parameter.
+     * @param exploration the exploration weight.
+     * @return the upper confidence bound.
      */
-    private static final Random RANDOM = new Random();
+    private static double getRaveUpperConfidenceBound(long wins, long visits, int amafWins,
+                                                      int amafVisits, double lnt,
+                                                      boolean isPlayer, int equivalence,
+                                                      double exploration) {
+        double winningProb = ((double) wins) / ((double) visits);
+        if (amafVisits > 0) {
+            double beta = Math.sqrt(equivalence / (3.0 * visits + equivalence));
+            double amafProb = ((double) amafWins) / ((double) amafVisits);
+            winningProb = (1 - beta) * winningProb + beta * amafProb;
+        }
+        if (!isPlayer) {
+            winningProb = 1 - winningProb;
+        }
+        return winningProb + Math.sqrt(exploration * lnt / visits);
+    }
 
     /**
-     * Select and return a node starting from parent, according to selection rule in MCTS.
+     * Select a node starting from the root, according to selection rule in MCTS.
+     * The moves of selected nodes are played on the board, which starts as the root board, and the
+     * selected nodes are recorded on the path, since a node can be reached from several parents.
+     * Virtual loss is added to every selected node, and must be removed by backpropagation.
+     * With progressive expansion, selection also stops at a node that has an untried move or
+     * whose tried moves are all still being created. Selection stops at a proven node, never
+     * picks a move proven lost for the player to move, and always picks a move proven won.
      *
-     * @param root the root node.
-     * @return the selected node.
+     * @param pool the graph.
+     * @param board the root board, which becomes the board of the selected node.
+     * @param path the path to fill, starting with the root.
+     * @return the depth of the selected node, which is its index on the path.
      */
-    private static Node selection(Node root) {
-        boolean isPlayer = true;
+    static int selection(NodePool pool, PlayoutBoard board, int[] path) {
+        int equivalence = pool.raveEquivalence();
+        double exploration = pool.exploration();
+        int node = ROOT;
+        int depth = 0;
+        path[0] = ROOT;
         while (true) {
             // Find optimal move and loop down.
-            // noinspection ConstantConditions
-            List<Node> children = root.children;
-            if (children.isEmpty()) {
-                return root;
+            int firstEdge = pool.firstEdge(node);
+            if (firstEdge < 0 || pool.proof(node) != 0) {
+                return depth;
             }
+            // The player moves from the root and from every other node after it.
+            boolean isPlayer = (depth & 1) == 0;
+            int moverWin = isPlayer ? PROVEN_WIN : PROVEN_LOSS;
+            int end = firstEdge + pool.edgeCount(node);
+            double lnt = Math.log(pool.visits(node));
             double max = -100000;
-            Node n = null;
-            for (Node node : children) {
-                double ucb = node.getUpperConfidenceBound(isPlayer);
+            int e = NONE;
+            for (int edge = firstEdge; edge < end; edge++) {
+                int child = pool.edgeTarget(edge);
+                if (child == NONE) {
+                    // An untried move is tried before any tried move is selected again.
+                    return depth;
+                } else if (child < 0) {
+                    continue;
+                }
+                int proof = pool.proof(child);
+                if (proof == moverWin) {
+                    e = edge;
+                    break;
+                } else if (proof != 0) {
+                    continue;
+                }
+                double ucb = equivalence == 0
+                        ? getUpperConfidenceBound(pool.wins(child), pool.visits(child), lnt,
+                                isPlayer, exploration)
+                        : getRaveUpperConfidenceBound(pool.wins(child), pool.visits(child),
+                                pool.amafWins(edge), pool.amafVisits(edge), lnt, isPlayer,
+                                equivalence, exploration);
                 if (ucb > max) {
                     max = ucb;
-                    n = node;
+                    e = edge;
                 }
             }
-            isPlayer = !isPlayer; // switch player identity
-            root = n;
+            if (e == NONE) {
+                return depth;
+            }
+            node = pool.edgeTarget(e);
+            pool.update(node, virtualWins(isPlayer), VIRTUAL_LOSS);
+            board.makeMove(pool.edgeMove(e));
+            path[++depth] = node;
         }
     }
 
+    /**
+     * @param isPlayerMove whether the move on the node is made by the player who is searching.
+     * @return the wins counted in the virtual loss of a node. A virtual loss is a loss for the side
+     * that picks the node, so it counts as wins on the opponent's nodes.
+     */
+    private static int virtualWins(boolean isPlayerMove) {
+        return isPlayerMove ? 0 : VIRTUAL_LOSS;
+    }
+
     /**
      * Perform simulation for a specific board and gives back a win value between 0 and 1.
+     * The random playout runs in place on the thread's playout board without allocation.
      *
      * @param playerIdentity the identity of the player.
      * @param board the board to do the simulation.
+     * @param seed the seed of the random playout.
+     * @param amaf the all-moves-as-first statistics of the iteration, or null without RAVE.
      * @return the win value.
      */
-    private static int simulation(int playerIdentity, Board board) {
-        Board b = board;
-        int status = b.getGameStatus();
-        while (status == 0) {
-            List<Move> moves = b.getAllLegalMovesForAI();
-            b = b.makeMoveWithoutCheck(moves.get(RANDOM.nextInt(moves.size())));
-            status = b.getGameStatus();
+    private static int simulation(int playerIdentity, PlayoutBoard board, long seed,
+                                  @Nullable AmafStatistics amaf) {
+        PlayoutBoard playoutBoard = PLAYOUT_BOARD.get();
+        playoutBoard.copyFrom(board);
+        int win = playout(playerIdentity, playoutBoard, seed);
+        if (amaf != null) {
+            amaf.add(playoutBoard, win);
         }
-        return status == playerIdentity ? 1 : 0;
+        return win;
     }
 
     /**
-     * A method that connected all parts of of MCTS to build an evaluation tree.
+     * Play a random game to the end on a board that can be discarded afterwards.
      *
-     * @param root the root the think on.
-     * @param timeLimit the time limit.
-     * @return the simulation counter.
+     * @param playerIdentity the identity of the player.
+     * @param board the board to play on.
+     * @param seed the seed of the random playout.
+     * @return the win value.
+     */
+    private static int playout(int playerIdentity, PlayoutBoard board, long seed) {
+        FastRandom random = PLAYOUT_RANDOM.get();
+        random.setSeed(seed);
+        return board.playRandomGame(random) == playerIdentity ? 1 : 0;
+    }
+
+    /**
+     * Add the simulation results to all nodes on the path from the selected node up to the root,
+     * and remove the virtual loss added by selection.
+     *
+     * @param pool the graph.
+     * @param path the path of the selection.
+     * @param depth the depth of the selected node.
+     * @param winCount the win count to add.
+     * @param simulations the number of simulations to add.
      */
-    private static int think(Node root, long timeLimit) {
-        int playerIdentity = root.board.getPlayerIdentity();
-        long tStart = System.currentTimeMillis();
+    static void backpropagation(NodePool pool, int[] path, int depth,
+                                        long winCount, long simulations) {
+        for (int i = depth; i > 0; i--) {
+            // The move on a node at an odd depth is made by the player.
+            boolean isPlayerMove = (i & 1) == 1;
+            pool.update(path[i], winCount - virtualWins(isPlayerMove), simulations - VIRTUAL_LOSS);
+        }
+        pool.update(ROOT, winCount, simulations);
+    }
+
+    /**
+     * Prove the selected node and every node above it on the path that the proof decides.
+     * A node is won for the player to move on it if one of its moves is won, and lost if all of
+     * its moves are lost.
+     *
+     * @param pool the graph.
+     * @param path the path of the selection.
+     * @param depth the depth of the selected node.
+     * @param proof the proof of the selected node.
+     */
+    private static void prove(NodePool pool, int[] path, int depth, int proof) {
+        pool.prove(path[depth], proof);
+        for (int i = depth - 1; i >= 0; i--) {
+            // The player moves from the root and from every other node after it.
+            int moverWin = (i & 1) == 0 ? PROVEN_WIN : PROVEN_LOSS;
+            if (proof != moverWin && !allMovesLost(pool, path[i], moverWin)) {
+                return;
+            }
+            pool.prove(path[i], proof);
+        }
+    }
+
+    /**
+     * @param pool the graph.
+     * @param node a node.
+     * @param moverWin the proof of a win for the player to move on the node.
+     * @return whether the node is expanded and all its moves are proven lost for the player to
+     * move.
+     */
+    private static boolean allMovesLost(NodePool pool, int node, int moverWin) {
+        int firstEdge = pool.firstEdge(node);
+        if (firstEdge < 0) {
+            return false;
+        }
+        int end = firstEdge + pool.edgeCount(node);
+        for (int edge = firstEdge; edge < end; edge++) {
+            int child = pool.edgeTarget(edge);
+            if (child < 0 || pool.proof(child) != -moverWin) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Expand a claimed node with all its legal moves and simulate once from every new child.
+     * A child whose position is already in the graph is shared through the transposition table
+     * without a simulation, so only the new simulations are backpropagated.
+     *
+     * @param pool the graph.
+     * @param path the path of the selection.
+     * @param depth the depth of the node to expand.
+     * @param board the board of the node.
+     * @param childBoard the scratch board of the children.
+     * @param playerIdentity the identity of the player who is searching.
+     * @param seed the seed of the first playout. Later children use the following seeds.
+     * @param statistics the statistics of the worker.
+     * @param amaf the all-moves-as-first statistics of the iteration, or null without RAVE.
+     * @return the number of simulations.
+     */
+    private static int expansion(NodePool pool, int[] path, int depth, PlayoutBoard board,
+                                 PlayoutBoard childBoard, int playerIdentity, long seed,
+                                 WorkerStatistics statistics, @Nullable AmafStatistics amaf) {
+        int node = path[depth];
+        long low = board.legalMovesLow(), high = board.legalMovesHigh();
+        int len = Long.bitCount(low) + Long.bitCount(high);
+        int firstEdge = pool.allocateEdges(len);
+        long winCount = 0;
+        int simulations = 0;
+        int edge = firstEdge;
+        for (; low != 0; low &= low - 1, edge++) {
+            int move = Long.numberOfTrailingZeros(low);
+            int win = expandMove(pool, edge, move, board, childBoard, playerIdentity,
+                    seed + edge - firstEdge, statistics, amaf);
+            if (win >= 0) {
+                winCount += win;
+                simulations++;
+            }
+        }
+        for (; high != 0; high &= high - 1, edge++) {
+            int move = PlayoutBoard.LOW_WORD_TILES + Long.numberOfTrailingZeros(high);
+            int win = expandMove(pool, edge, move, board, childBoard, playerIdentity,
+                    seed + edge - firstEdge, statistics, amaf);
+            if (win >= 0) {
+                winCount += win;
+                simulations++;
+            }
+        }
+        // Update the statistics before publishing the edges, so that every visible
+        // child has a parent with simulations.
+        long start = statistics.time();
+        backpropagation(pool, path, depth, winCount, simulations);
+        if (amaf != null) {
+            amaf.flush(pool, path, depth, playerIdentity, firstEdge, len);
+        }
+        statistics.backpropagationNanos += statistics.time() - start;
+        pool.publishEdges(node, firstEdge, len);
+        return simulations;
+    }
+
+    /**
+     * Try one untried move of the selected node with progressive expansion, and backpropagate
+     * its simulation. A node that is not expanded yet, which the worker has claimed, first gets
+     * edges for all its legal moves without any nodes behind them.
+     *
+     * @param pool the graph.
+     * @param path the path of the selection.
+     * @param depth the depth of the selected node.
+     * @param board the board of the node.
+     * @param childBoard the scratch board of the child.
+     * @param playerIdentity the identity of the player who is searching.
+     * @param seed the seed of the playout.
+     * @param statistics the statistics of the worker.
+     * @param amaf the all-moves-as-first statistics of the iteration, or null without RAVE.
+     * @return the number of simulations.
+     */
+    private static int progressiveExpansion(NodePool pool, int[] path, int depth,
+                                            PlayoutBoard board, PlayoutBoard childBoard,
+                                            int playerIdentity, long seed,
+                                            WorkerStatistics statistics,
+                                            @Nullable AmafStatistics amaf) {
+        int node = path[depth];
+        int firstEdge = pool.firstEdge(node);
+        if (firstEdge < 0) {
+            firstEdge = addUntriedMoves(pool, node, board);
+        }
+        int end = firstEdge + pool.edgeCount(node);
+        boolean tried = false;
+        int win = -1;
+        // The root always gets its children, so that there is a move to answer.
+        if (depth > 0 && !pool.hasRoom(1)) {
+            end = firstEdge;
+        }
+        for (int edge = firstEdge; edge < end && !tried; edge++) {
+            if (pool.edgeTarget(edge) == NONE && pool.tryClaimEdge(edge)) {
+                win = expandMove(pool, edge, pool.edgeMove(edge), board, childBoard,
+                        playerIdentity, seed, statistics, amaf);
+                tried = true;
+            }
+        }
+        if (!tried) {
+            // Other workers are trying all untried moves, or the graph is full. Simulate once
+            // from the node instead.
+            long start = statistics.time();
+            win = simulation(playerIdentity, board, seed, amaf);
+            statistics.playoutNanos += statistics.time() - start;
+        }
+        // A shared child brings its own simulations, so there is nothing new to add.
+        int simulations = win >= 0 ? 1 : 0;
+        long start = statistics.time();
+        backpropagation(pool, path, depth, Math.max(win, 0), simulations);
+        if (amaf != null) {
+            amaf.flush(pool, path, depth, playerIdentity, NONE, 0);
+        }
+        statistics.backpropagationNanos += statistics.time() - start;
+        return simulations;
+    }
+
+    /**
+     * Expand a claimed node with edges for all its legal moves, all untried.
+     *
+     * @param pool the graph.
+     * @param node the node.
+     * @param board the board of the node.
+     * @return the first edge.
+     */
+    private static int addUntriedMoves(NodePool pool, int node, PlayoutBoard board) {
+        long low = board.legalMovesLow(), high = board.legalMovesHigh();
+        int len = Long.bitCount(low) + Long.bitCount(high);
+        int firstEdge = pool.allocateEdges(len);
+        int edge = firstEdge;
+        for (; low != 0; low &= low - 1, edge++) {
+            pool.initEdge(edge, Long.numberOfTrailingZeros(low), NONE);
+        }
+        for (; high != 0; high &= high - 1, edge++) {
+            pool.initEdge(edge, PlayoutBoard.LOW_WORD_TILES + Long.numberOfTrailingZeros(high),
+                    NONE);
+        }
+        pool.publishEdges(node, firstEdge, len);
+        return firstEdge;
+    }
+
+    /**
+     * Initialize the edge of one move of a node being expanded, or of an untried move claimed
+     * with progressive expansion, sharing the child node if its position is already in the graph
+     * and creating it with one simulation otherwise.
+     *
+     * @param pool the graph.
+     * @param edge the edge to initialize.
+     * @param move the move.
+     * @param board the board of the node being expanded.
+     * @param childBoard the scratch board of the child.
+     * @param playerIdentity the identity of the player who is searching.
+     * @param seed the seed of the playout.
+     * @param statistics the statistics of the worker.
+     * @param amaf the all-moves-as-first statistics of the iteration, or null without RAVE.
+     * @return the win value of the simulation, or -1 if the child is shared.
+     */
+    private static int expandMove(NodePool pool, int edge, int move, PlayoutBoard board,
+                                  PlayoutBoard childBoard, int playerIdentity, long seed,
+                                  WorkerStatistics statistics, @Nullable AmafStatistics amaf) {
+        childBoard.copyFrom(board);
+        childBoard.makeMove(move);
+        long hash = childBoard.getHash();
+        int child = pool.findTransposition(hash);
+        if (child != NONE) {
+            linkChild(pool, edge, move, child);
+            return -1;
+        }
+        child = pool.allocate();
+        long start = statistics.time();
+        int win = playout(playerIdentity, childBoard, seed);
+        if (amaf != null) {
+            amaf.add(childBoard, win);
+        }
+        statistics.playoutNanos += statistics.time() - start;
+        pool.init(child, win, 1);
+        pool.recordTransposition(hash, child);
+        linkChild(pool, edge, move, child);
+        return win;
+    }
+
+    /**
+     * Set the node an edge leads to. An untried move of progressive expansion is published right
+     * away, while the edges of a full expansion are published together afterwards.
+     *
+     * @param pool the graph.
+     * @param edge the edge.
+     * @param move the move of the edge.
+     * @param child the node the move leads to.
+     */
+    private static void linkChild(NodePool pool, int edge, int move, int child) {
+        if (pool.isProgressiveExpansion()) {
+            pool.publishEdgeTarget(edge, child);
+        } else {
+            pool.initEdge(edge, move, child);
+        }
+    }
+
+    /**
+     * Run the search loop of one worker until the time limit is reached or the search is stopped.
+     *
+     * @param pool the shared graph.
+     * @param rootBoard the board of the root.
+     * @param time the time control of the search.
+     * @param random the source of playout seeds of this worker.
+     * @param control the control of the search.
+     * @param statistics the statistics of this worker.
+     * @return the number of simulations done by this worker.
+     */
+    private static int work(NodePool pool, Board rootBoard, TimeManager time,
+                            FastRandom random, SearchControl control,
+                            WorkerStatistics statistics) {
+        int playerIdentity = rootBoard.getPlayerIdentity();
+        PlayoutBoard board = new PlayoutBoard();
+        PlayoutBoard childBoard = new PlayoutBoard();
+        // A game has at most 81 moves, so a path has at most 82 nodes.
+        int[] path = new int[82];
+        AmafStatistics amaf = pool.raveEquivalence() > 0 ? new AmafStatistics() : null;
+        EndgameSolver solver = SOLVER.get();
+        if (pool.solverThreshold() > 0) {
+            // Solves give up on the same positions whatever this thread searched before.
+            solver.clear();
+        }
         int simulationCounter = 0;
-        while (System.currentTimeMillis() - tStart < timeLimit) {
-            Node selectedNode = selection(root);
-            Board b = selectedNode.board;
-            // Expansion: Get all legal moves from a current board
-            List<Move> allLegalMoves = b.getAllLegalMovesForAI();
-            int len = allLegalMoves.size();
-            if (len == 0) {
-                // board no longer needed at parent level.
-                Node n = selectedNode;
-                while (n != null) {
-                    n.winningProbNumerator += playerIdentity == b.getGameStatus() ? 10000 : 0;
-                    n.winningProbDenominator += 10000;
-                    n = n.parent;
+        int countdown = TimeManager.CHECK_INTERVAL;
+        while (!control.isStopped()) {
+            if (countdown <= 0) {
+                countdown = TimeManager.CHECK_INTERVAL;
+                long now = System.nanoTime();
+                if (time.isExpired(now)) {
+                    break;
                 }
-                simulationCounter += 1;
-            } else {
-                // board no longer needed at parent level.
-                selectedNode.board = null;
-                List<Node> newChildren = allLegalMoves.parallelStream().unordered().map(move -> {
-                    Board newBoard = b.makeMoveWithoutCheck(move);
-                    return new Node(
-                            selectedNode, move, newBoard, simulation(playerIdentity, newBoard)
-                    );
-                }).collect(Collectors.toList());
-                selectedNode.children = newChildren;
-                int winCount = 0;
-                for (int i = 0; i < len; i++) {
-                    winCount += newChildren.get(i).winningProbNumerator;
+                if (time.canStopEarly(pool, now)) {
+                    control.stop();
+                    break;
                 }
-                Node n = selectedNode;
-                while (n != null) {
-                    n.winningProbNumerator += winCount;
-                    n.winningProbDenominator += len;
-                    n = n.parent;
+            }
+            long start = statistics.time();
+            rootBoard.copyInto(board);
+            int depth = selection(pool, board, path);
+            int selectedNode = path[depth];
+            long selected = statistics.time();
+            statistics.selected(depth, selected - start);
+            int status = board.getGameStatus();
+            int proof = status == 0 ? pool.proof(selectedNode)
+                    : status == playerIdentity ? PROVEN_WIN : PROVEN_LOSS;
+            // The root is never solved itself, since the answer needs the move that wins.
+            if (proof == 0 && depth > 0 && board.countEmptyTiles() <= pool.solverThreshold()
+                    && pool.tryClaimSolve(selectedNode)) {
+                int winner = solver.solve(board);
+                if (winner != 0) {
+                    proof = winner == playerIdentity ? PROVEN_WIN : PROVEN_LOSS;
                 }
-                simulationCounter += len;
+                // Solving counts as expansion, and the later phases start after it.
+                long solved = statistics.time();
+                statistics.expansionNanos += solved - selected;
+                selected = solved;
             }
+            int simulations;
+            if (proof != 0) {
+                // The node is decided, which is as good as many simulations.
+                prove(pool, path, depth, proof);
+                backpropagation(pool, path, depth, proof == PROVEN_WIN ? 10000 : 0, 10000);
+                statistics.backpropagationNanos += statistics.time() - selected;
+                simulations = 1;
+                if (pool.proof(ROOT) != 0) {
+                    // The move to play is known, so there is nothing left to search.
+                    control.stop();
+                }
+            } else if (pool.firstEdge(selectedNode) >= 0 ? !pool.isProgressiveExpansion()
+                    : depth > 0 && !pool.hasRoom(board.countLegalMoves())
+                    || !pool.tryClaimExpansion(selectedNode)) {
+                // Another worker is expanding the node, or has just proven all its moves lost,
+                // or the graph is full. The root is always expanded, so that there is a move to
+                // answer. Simulate once from the node instead of waiting.
+                int win = simulation(playerIdentity, board, random.nextLong(), amaf);
+                long simulated = statistics.time();
+                statistics.playoutNanos += simulated - selected;
+                backpropagation(pool, path, depth, win, 1);
+                if (amaf != null) {
+                    amaf.flush(pool, path, depth, playerIdentity, NONE, 0);
+                }
+                statistics.backpropagationNanos += statistics.time() - simulated;
+                simulations = 1;
+            } else if (pool.isProgressiveExpansion()) {
+                long nested = statistics.playoutNanos + statistics.backpropagationNanos;
+                simulations = progressiveExpansion(pool, path, depth, board, childBoard,
+                        playerIdentity, random.nextLong(), statistics, amaf);
+                nested = statistics.playoutNanos + statistics.backpropagationNanos - nested;
+                statistics.expansionNanos += statistics.time() - selected - nested;
+            } else {
+                long nested = statistics.playoutNanos + statistics.backpropagationNanos;
+                // Seeds are assigned by child index, so the result does not depend on threads.
+                simulations = expansion(pool, path, depth, board, childBoard,
+                        playerIdentity, random.nextLong(), statistics, amaf);
+                // Playouts and backpropagation during the expansion are counted on their own.
+                nested = statistics.playoutNanos + statistics.backpropagationNanos - nested;
+                statistics.expansionNanos += statistics.time() - selected - nested;
+            }
+            simulationCounter += simulations;
+            control.addSimulations(simulations);
+            // An iteration that only reaches a shared child still counts towards the next check.
+            countdown -= Math.max(simulations, 1);
         }
-        System.out.println("# of simulations: " + simulationCounter);
         return simulationCounter;
     }
 
+    /**
+     * A method that connected all parts of of MCTS to build an evaluation tree.
+     * The calling thread is one of the workers. The metrics of the search are reported to the
+     * listener and to the Flight Recorder.
+     *
+     * @param pool the tree with an initialized root.
+     * @param rootBoard the board of the root.
+     * @param config the search configuration.
+     * @param random the source of worker seeds.
+     * @param control the control of the search.
+     * @return the simulation counter.
+     */
+    private static int think(NodePool pool, Board rootBoard, SearchConfig config,
+                             FastRandom random, SearchControl control) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        pool.setTranspositionTableSize(config.getTranspositionTableSize());
+        pool.setExploration(config.getExploration());
+        pool.setRaveEquivalence(config.getRaveEquivalence());
+        pool.setProgressiveExpansion(config.isProgressiveExpansion());
+        pool.setSolverThreshold(config.getSolverThreshold());
+        pool.setNodeLimit(config.getNodeLimit());
+        int initialSize = pool.size();
+        // A search with a simulation limit runs to the limit, so that it stays reproducible.
+        TimeManager time = new TimeManager(pool, rootBoard, config.getTimeLimit(),
+                config.isEarlyTermination() && config.getSimulationLimit() == Long.MAX_VALUE);
+        SearchListener listener = config.getListener() != null
+                ? config.getListener() : defaultListener;
+        boolean timed = listener != null || event.isEnabled();
+        int threads = config.getThreads();
+        WorkerStatistics[] statistics = new WorkerStatistics[threads];
+        List<Future<Integer>> futures = new ArrayList<>(threads - 1);
+        for (int i = 1; i < threads; i++) {
+            FastRandom workerRandom = new FastRandom(random.nextLong());
+            WorkerStatistics workerStatistics = new WorkerStatistics(timed);
+            statistics[i] = workerStatistics;
+            futures.add(WORKERS.submit(() -> work(pool, rootBoard, time,
+                    workerRandom, control, workerStatistics)));
+        }
+        statistics[0] = new WorkerStatistics(timed);
+        int simulationCounter = work(pool, rootBoard, time, random, control, statistics[0]);
+        for (Future<Integer> future : futures) {
+            simulationCounter += await(future);
+        }
+        if (timed) {
+            long[] wins = new long[81];
+            long[] visits = new long[81];
+            collectRootStatistics(pool, wins, visits);
+            SearchMetrics metrics = WorkerStatistics.merge(statistics, simulationCounter,
+                    System.nanoTime() - startNanos, pool.size() - initialSize, visits);
+            if (listener != null) {
+                listener.searchFinished(metrics);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.set(metrics);
+                event.commit();
+            }
+        }
+        return simulationCounter;
+    }
+
+    /**
+     * Set the listener of all searches whose configuration has no listener.
+     *
+     * @param listener the listener, or null for none.
+     */
+    static void setDefaultListener(@Nullable SearchListener listener) {
+        defaultListener = listener;
+    }
+
+    /**
+     * Clear a node pool and its transpositions and create a root in it.
+     *
+     * @param pool the node pool.
+     */
+    static void resetTree(@NotNull NodePool pool) {
+        pool.reset();
+        pool.init(pool.allocate(), 0, 0);
+    }
+
+    /**
+     * Add the statistics of the root children to the arrays indexed by move.
+     *
+     * @param pool the tree.
+     * @param wins the winning probability numerators of root children by move.
+     * @param visits the winning probability denominators of root children by move.
+     */
+    private static void collectRootStatistics(NodePool pool, long[] wins, long[] visits) {
+        int firstEdge = pool.firstEdge(ROOT);
+        if (firstEdge < 0) {
+            return;
+        }
+        int end = firstEdge + pool.edgeCount(ROOT);
+        for (int edge = firstEdge; edge < end; edge++) {
+            int move = pool.edgeMove(edge);
+            int child = pool.edgeTarget(edge);
+            if (child < 0) {
+                continue;
+            }
+            int proof = pool.proof(child);
+            long childVisits = pool.visits(child);
+            // A proven move counts as always won or always lost.
+            wins[move] += proof == PROVEN_WIN ? childVisits
+                    : proof == PROVEN_LOSS ? 0 : pool.wins(child);
+            visits[move] += childVisits;
+        }
+    }
+
+    /**
+     * Search a new tree in the node pool of the calling thread and add the statistics of the root
+     * children to the arrays indexed by move. The tree is discarded afterwards.
+     *
+     * @param board the root board.
+     * @param config the search configuration.
+     * @param random the source of worker seeds.
+     * @param wins the winning probability numerators of root children by move.
+     * @param visits the winning probability denominators of root children by move.
+     * @return the simulation counter.
+     */
+    private static int searchTree(Board board, SearchConfig config, FastRandom random,
+                                  long[] wins, long[] visits) {
+        NodePool pool = ARENA.get();
+        resetTree(pool);
+        int simulationCounter = think(pool, board, config, random,
+                new SearchControl(config.getSimulationLimit()));
+        collectRootStatistics(pool, wins, visits);
+        return simulationCounter;
+    }
+
+    /**
+     * Choose the move with the best winning probability from the root statistics.
+     *
+     * @param wins the winning probability numerators of root children by move.
+     * @param visits the winning probability denominators of root children by move.
+     * @param treeSimulationCounters the number of simulations done on each tree.
+     * @param seed the master seed of the search.
+     * @return the decision.
+     */
+    private static Decision decide(long[] wins, long[] visits, int[] treeSimulationCounters,
+                                   long seed) {
+        int simulationCounter = 0;
+        for (int counter : treeSimulationCounters) {
+            simulationCounter += counter;
+        }
+        int chosenMove = -1;
+        // Find the best move
+        double maxWinningProbability = -1;
+        for (int move = 0; move < 81; move++) {
+            if (visits[move] == 0) {
+                continue;
+            }
+            double value = ((double) wins[move]) / ((double) visits[move]);
+            // Among equal moves, the most visited one is the most reliable.
+            if (value > maxWinningProbability || value == maxWinningProbability
+                    && visits[move] > visits[chosenMove]) {
+                maxWinningProbability = value;
+                chosenMove = move;
+            }
+        }
+        return new Decision(
+                new Move(chosenMove / 9, chosenMove % 9),
+                (int) (maxWinningProbability * 100),
+                simulationCounter,
+                treeSimulationCounters,
+                visits,
+                seed
+        );
+    }
+
     /**
      * Give the final move chosen by AI with the format
      * (...decided move, winning probability percentage by that move).
@@ -127,128 +799,388 @@ final class MCTS {
      * @return the decision.
      */
     static Decision selectMove(@NotNull Board board, long timeLimit) {
-        Node root = new Node(board);
-        int simulationCounter = think(root, timeLimit);
-        Node nodeChosen = null;
-        // Find the best move
-        double maxWinningProbability = 0;
-        for (Node n : root.children) {
-            double value = n.getWinningProbability();
-            if (value > maxWinningProbability) {
-                maxWinningProbability = value;
-                nodeChosen = n;
+        return selectMove(board, SearchConfig.DEFAULT.withTimeLimit(timeLimit));
+    }
+
+    /**
+     * Give the final move chosen by AI with a master seed for all random playouts.
+     * Single-threaded searches with the same seed that run the same number of iterations make
+     * the same decision, which allows replaying a reported move.
+     *
+     * @param board the initial board.
+     * @param timeLimit time limit in milliseconds.
+     * @param seed the master seed.
+     * @return the decision.
+     */
+    static Decision selectMove(@NotNull Board board, long timeLimit, long seed) {
+        return selectMove(board, SearchConfig.DEFAULT.withTimeLimit(timeLimit).withSeed(seed));
+    }
+
+    /**
+     * Give the final move chosen by AI under a search configuration.
+     * <p>
+     * With root parallelism, several independent trees are searched concurrently, each with its
+     * own random seed and without any synchronization between trees. The statistics of their
+     * root children are summed by move to pick the final move.
+     *
+     * @param board the initial board.
+     * @param config the search configuration.
+     * @return the decision.
+     */
+    static Decision selectMove(@NotNull Board board, @NotNull SearchConfig config) {
+        long seed = config.isSeeded() ? config.getSeed() : ThreadLocalRandom.current().nextLong();
+        FastRandom random = new FastRandom(seed);
+        int trees = config.getRootParallelism();
+        long[][] wins = new long[trees][81];
+        long[][] visits = new long[trees][81];
+        List<Future<Integer>> futures = new ArrayList<>(trees - 1);
+        FastRandom firstTreeRandom = new FastRandom(random.nextLong());
+        for (int i = 1; i < trees; i++) {
+            FastRandom treeRandom = new FastRandom(random.nextLong());
+            long[] treeWins = wins[i], treeVisits = visits[i];
+            futures.add(WORKERS.submit(() ->
+                    searchTree(board, config, treeRandom, treeWins, treeVisits)));
+        }
+        int[] treeSimulationCounters = new int[trees];
+        treeSimulationCounters[0] = searchTree(board, config, firstTreeRandom, wins[0], visits[0]);
+        for (int i = 1; i < trees; i++) {
+            treeSimulationCounters[i] = await(futures.get(i - 1));
+            // Merge the root children of all trees by move.
+            for (int move = 0; move < 81; move++) {
+                wins[0][move] += wins[i][move];
+                visits[0][move] += visits[i][move];
             }
         }
-        // noinspection ConstantConditions
-        return new Decision(
-                nodeChosen.move,
-                nodeChosen.getWinningProbabilityInPercentage(),
-                simulationCounter
-        );
+        return decide(wins[0], visits[0], treeSimulationCounters, seed);
     }
 
     /**
-     * The decision object.
+     * Continue searching an existing tree and give the final move chosen by AI. The tree is kept
+     * in the pool afterwards, so that it can be reused for later moves.
+     * Root parallelism in the configuration is ignored.
+     *
+     * @param pool the tree, whose root must have been created by {@link #resetTree(NodePool)}.
+     * @param board the board of the root.
+     * @param config the search configuration.
+     * @return the decision.
      */
-    static final class Decision {
+    static Decision selectMove(@NotNull NodePool pool, @NotNull Board board,
+                               @NotNull SearchConfig config) {
+        long seed = config.isSeeded() ? config.getSeed() : ThreadLocalRandom.current().nextLong();
+        int simulationCounter = think(pool, board, config, new FastRandom(seed),
+                new SearchControl(config.getSimulationLimit()));
+        return decide(pool, simulationCounter, seed);
+    }
+
+    /**
+     * Start searching in the background and give the future final move chosen by AI.
+     * <p>
+     * While the search runs, the best move so far is published to the listener at a fixed
+     * interval, from a shared progress thread. Cancelling the future stops all workers at their
+     * next iteration. Root parallelism in the configuration is ignored.
+     *
+     * @param board the initial board.
+     * @param config the search configuration.
+     * @param snapshotInterval the interval between snapshots in milliseconds.
+     * @param listener the listener of the snapshots, or null for no snapshots.
+     * @return the future decision.
+     */
+    static CompletableFuture<Decision> selectMoveAsync(
+            @NotNull Board board, @NotNull SearchConfig config, long snapshotInterval,
+            @Nullable Consumer<Decision> listener) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive!");
+        }
+        long seed = config.isSeeded() ? config.getSeed() : ThreadLocalRandom.current().nextLong();
+        // The tree is owned by this search, so that snapshots never see a reused pool.
+        NodePool pool = new NodePool();
+        resetTree(pool);
+        SearchControl control = new SearchControl(config.getSimulationLimit());
+        CompletableFuture<Decision> future = new CompletableFuture<>();
+        ScheduledFuture<?> snapshots = listener == null ? null : PROGRESS.scheduleAtFixedRate(
+                () -> {
+                    if (pool.firstEdge(ROOT) >= 0 && !future.isDone()) {
+                        listener.accept(decide(pool, (int) control.getSimulations(), seed));
+                    }
+                }, snapshotInterval, snapshotInterval, TimeUnit.MILLISECONDS);
+        future.whenComplete((decision, error) -> {
+            // Stops the workers when the future is cancelled.
+            control.stop();
+            if (snapshots != null) {
+                snapshots.cancel(false);
+            }
+        });
+        WORKERS.execute(() -> {
+            try {
+                int simulationCounter = think(pool, board, config, new FastRandom(seed), control);
+                future.complete(decide(pool, simulationCounter, seed));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Continue searching an existing tree on the calling thread only, for a short slice of a
+     * longer search that is interleaved with other searches or runs in the background.
+     *
+     * @param pool the tree, whose root must have been created by {@link #resetTree(NodePool)}.
+     * @param board the board of the root.
+     * @param timeLimit the time limit of the slice in milliseconds.
+     * @param random the source of playout seeds, which carries on across slices.
+     * @param control the control of the slice, which can stop it early. It is stopped when the
+     * root is proven, so a control shared by the slices of a search tells when it is over.
+     * @return the number of simulations done in the slice.
+     */
+    static int searchSlice(@NotNull NodePool pool, @NotNull Board board, long timeLimit,
+                           @NotNull FastRandom random, @NotNull SearchControl control) {
+        return work(pool, board, new TimeManager(pool, board, timeLimit, false), random, control,
+                new WorkerStatistics(false));
+    }
+
+    /**
+     * Choose the move with the best winning probability among the root children of a tree.
+     *
+     * @param pool the tree.
+     * @param simulationCounter the number of simulations done on the tree.
+     * @param seed the master seed of the search.
+     * @return the decision.
+     */
+    static Decision decide(@NotNull NodePool pool, int simulationCounter, long seed) {
+        long[] wins = new long[81];
+        long[] visits = new long[81];
+        collectRootStatistics(pool, wins, visits);
+        return decide(wins, visits, new int[]{simulationCounter}, seed);
+    }
+
+    /**
+     * Wait for the simulation counter of a worker.
+     *
+     * @param future the future of the worker.
+     * @return the simulation counter.
+     */
+    private static int await(Future<Integer> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for workers!", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A search worker failed!", e.getCause());
+        }
+    }
+
+    /**
+     * The all-moves-as-first results of the playouts of one iteration of a worker, collected by
+     * tile and player and added to the edges of the path at the end of the iteration.
+     */
+    private static final class AmafStatistics {
 
         /**
-         * The decided move.
+         * The win count of the simulations of one iteration in which a tile was played, indexed
+         * by tile for black and by 81 + tile for white.
          */
-        final Move move;
+        private final int[] wins = new int[162];
         /**
-         * The winning probability of the decided move.
+         * The number of simulations of one iteration in which a tile was played, indexed like
+         * the win counts.
          */
-        final int winningPercentage;
+        private final int[] visits = new int[162];
+
         /**
-         * The counter that records the number of simulation done.
+         * Record a finished playout.
+         *
+         * @param board the board at the end of the playout.
+         * @param win the win value of the playout.
          */
-        final int simulationCounter;
+        void add(PlayoutBoard board, int win) {
+            add(board.tilesLow(1), board.tilesHigh(1), 0, win);
+            add(board.tilesLow(-1), board.tilesHigh(-1), 81, win);
+        }
 
-        private Decision(Move move, int winningPercentage, int simulationCounter) {
-            this.move = move;
-            this.winningPercentage = winningPercentage;
-            this.simulationCounter = simulationCounter;
+        /**
+         * @param low the tiles of a player in the low tile word.
+         * @param high the tiles of the player in the high tile word.
+         * @param offset the index offset of the player.
+         * @param win the win value of the playout.
+         */
+        private void add(long low, long high, int offset, int win) {
+            for (; low != 0; low &= low - 1) {
+                int index = offset + Long.numberOfTrailingZeros(low);
+                wins[index] += win;
+                visits[index]++;
+            }
+            for (; high != 0; high &= high - 1) {
+                int index = offset + PlayoutBoard.LOW_WORD_TILES + Long.numberOfTrailingZeros(high);
+                wins[index] += win;
+                visits[index]++;
+            }
+        }
+
+        /**
+         * Add the recorded playouts to the edges of all nodes on the path, and clear them.
+         * Every legal move of a node that ends up on a tile of the player to move on the node
+         * was played later by that player. Edges that are not published yet are passed
+         * explicitly.
+         *
+         * @param pool the graph.
+         * @param path the path of the selection.
+         * @param depth the depth of the selected node.
+         * @param playerIdentity the identity of the player who is searching.
+         * @param firstEdge the first unpublished edge of the selected node, or
+         * {@link NodePool#NONE}.
+         * @param edgeCount the number of unpublished edges.
+         */
+        void flush(NodePool pool, int[] path, int depth, int playerIdentity,
+                   int firstEdge, int edgeCount) {
+            for (int i = 0; i <= depth; i++) {
+                int node = path[i];
+                int first = i == depth && firstEdge != NONE ? firstEdge : pool.firstEdge(node);
+                if (first < 0) {
+                    continue;
+                }
+                int end = first + (i == depth && firstEdge != NONE
+                        ? edgeCount : pool.edgeCount(node));
+                // The player moves from the root and from every other node after it.
+                boolean isPlayer = (i & 1) == 0;
+                int offset = (isPlayer ? playerIdentity : -playerIdentity) == 1 ? 0 : 81;
+                for (int edge = first; edge < end; edge++) {
+                    int index = offset + pool.edgeMove(edge);
+                    if (visits[index] > 0) {
+                        pool.updateAmaf(edge, wins[index], visits[index]);
+                    }
+                }
+            }
+            Arrays.fill(wins, 0);
+            Arrays.fill(visits, 0);
         }
 
     }
 
     /**
-     * The internal node.
+     * The statistics collected by one worker, merged into the metrics after the search.
      */
-    private static final class Node {
+    private static final class WorkerStatistics {
 
         /**
-         * A parent node. Root node does not have a parent node.
+         * Whether phase times are measured.
          */
-        final @Nullable
-        Node parent;
+        private final boolean timed;
         /**
-         * The move on the node.
+         * The time spent in each phase in nanoseconds.
          */
-        final @NotNull
-        Move move;
+        long selectionNanos, expansionNanos, playoutNanos, backpropagationNanos;
         /**
-         * The board on the node.
+         * The number of selections.
          */
-        Board board;
+        private long selections;
         /**
-         * A list of children nodes.
+         * The sum of the depths of selected nodes.
          */
-        @NotNull
-        List<Node> children;
+        private long depthSum;
         /**
-         * Winning probability tracker.
+         * The maximum depth of a selected node.
          */
-        int winningProbNumerator, winningProbDenominator;
-
-        Node(Board board) {
-            this.board = board;
-            parent = null;
-            move = Move.DUMMY_MOVE;
-            children = Collections.emptyList();
-            winningProbNumerator = 0;
-            winningProbDenominator = 0;
-        }
+        private int maxDepth;
 
-        Node(@NotNull Node parent, @NotNull Move move, @NotNull Board board, int winValue) {
-            this.parent = parent;
-            this.move = move;
-            this.board = board;
-            children = Collections.emptyList();
-            winningProbNumerator = winValue;
-            winningProbDenominator = 1;
+        /**
+         * @param timed whether phase times are measured.
+         */
+        private WorkerStatistics(boolean timed) {
+            this.timed = timed;
         }
 
         /**
-         * @return winning probability between 0 and 1.
+         * @return the current time in nanoseconds if times are measured, or 0.
          */
-        double getWinningProbability() {
-            return ((double) winningProbNumerator) / ((double) winningProbDenominator);
+        long time() {
+            return timed ? System.nanoTime() : 0;
         }
 
         /**
-         * @return winning probability in percentage.
+         * Record a selection.
+         *
+         * @param depth the depth of the selected node.
+         * @param nanos the time of the selection.
          */
-        int getWinningProbabilityInPercentage() {
-            return (int) (getWinningProbability() * 100);
+        void selected(int depth, long nanos) {
+            selections++;
+            depthSum += depth;
+            maxDepth = Math.max(maxDepth, depth);
+            selectionNanos += nanos;
         }
 
         /**
-         * Get upper confidence bound in MCTS, which needs a [isPlayer] parameter
-         * to tell whether to calculate in favor or against the player.
-         * <p>
-         * Requires: the node is not the root.
+         * Merge the statistics of all workers of a search.
          *
-         * @param isPlayer whether the user is player.
+         * @param statistics the statistics of all workers.
+         * @param simulations the number of simulations.
+         * @param durationNanos the duration of the search.
+         * @param nodesAllocated the number of nodes allocated by the search.
+         * @param rootVisits the visits of every move of the root.
+         * @return the metrics of the search.
          */
-        double getUpperConfidenceBound(boolean isPlayer) {
-            if (parent == null) {
-                throw new IllegalArgumentException("Cannot be called on root element!");
+        static SearchMetrics merge(WorkerStatistics[] statistics, long simulations,
+                                   long durationNanos, int nodesAllocated, long[] rootVisits) {
+            long selections = 0, depthSum = 0;
+            long selection = 0, expansion = 0, playout = 0, backpropagation = 0;
+            int maxDepth = 0;
+            for (WorkerStatistics worker : statistics) {
+                selections += worker.selections;
+                depthSum += worker.depthSum;
+                maxDepth = Math.max(maxDepth, worker.maxDepth);
+                selection += worker.selectionNanos;
+                expansion += worker.expansionNanos;
+                playout += worker.playoutNanos;
+                backpropagation += worker.backpropagationNanos;
             }
-            double lnt = Math.log(parent.winningProbDenominator);
-            double winningProb = isPlayer ? getWinningProbability() : 1 - getWinningProbability();
-            return winningProb + Math.sqrt(2 * lnt / winningProbDenominator);
+            double averageDepth = selections == 0 ? 0 : (double) depthSum / selections;
+            return new SearchMetrics(simulations, durationNanos, statistics.length,
+                    nodesAllocated, maxDepth, averageDepth, selection, expansion, playout,
+                    backpropagation, rootVisits);
+        }
+
+    }
+
+    /**
+     * The decision object.
+     */
+    static final class Decision {
+
+        /**
+         * The decided move.
+         */
+        final Move move;
+        /**
+         * The winning probability of the decided move.
+         */
+        final int winningPercentage;
+        /**
+         * The counter that records the number of simulation done, merged over all trees.
+         */
+        final int simulationCounter;
+        /**
+         * The number of simulations done on each independently searched tree.
+         */
+        final int[] treeSimulationCounters;
+        /**
+         * The visits of every move of the root at index a * 9 + b, merged over all trees.
+         */
+        final long[] rootVisits;
+        /**
+         * The master seed of the search, which can be used to replay it.
+         */
+        final long seed;
+
+        private Decision(Move move, int winningPercentage, int simulationCounter,
+                         int[] treeSimulationCounters, long[] rootVisits, long seed) {
+            this.move = move;
+            this.winningPercentage = winningPercentage;
+            this.simulationCounter = simulationCounter;
+            this.treeSimulationCounters = treeSimulationCounters;
+            this.rootVisits = rootVisits;
+            this.seed = seed;
         }
 
     }
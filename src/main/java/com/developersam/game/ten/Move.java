@@ -1,17 +1,10 @@
 package com.developersam.game.ten;
 
-import org.jetbrains.annotations.NotNull;
-
 /**
  * The move object.
  */
 final class Move {
     
-    /**
-     * A dummy move.
-     */
-    @NotNull
-    static final Move DUMMY_MOVE = new Move();
     /**
      * The coordinates.
      */
@@ -29,7 +22,7 @@ final class Move {
     }
     
     /**
-     * Constructor for GSON and dummy mov.
+     * Constructor for GSON.
      */
     private Move() {
         a = -1;
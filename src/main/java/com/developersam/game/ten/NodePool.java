@@ -0,0 +1,731 @@
+package com.developersam.game.ten;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A search graph stored as a struct of primitive arrays.
+ * <p>
+ * A node is an int index holding the statistics of one position, and node 0 is the root. The
+ * moves of a node are edges, which occupy a contiguous range of edge indices starting from the
+ * first edge of the node. An edge stores its move and the node it leads to. Positions reached by
+ * different move orders share one node through the {@link TranspositionTable}, so a node can be
+ * the target of several edges and nodes do not keep parent pointers. Nodes do not keep boards
+ * either: a board is rebuilt by replaying the moves from the root. The arrays are split into fixed
+ * size chunks, so that the pool can grow while several workers are searching it, and the first
+ * chunks are kept when the pool is reset, so that a pool can be reused across searches without
+ * allocation.
+ * <p>
+ * With progressive expansion, the edges of a node are created with the target {@link #NONE}, and
+ * a move becomes a node only when a worker tries it, so untried moves cost only their edge.
+ * <p>
+ * A node can be proven won or lost for the player who is searching, either because its game has
+ * ended, because it has been solved exactly, or because its moves are proven. Proven nodes are
+ * not searched any further.
+ * <p>
+ * With RAVE enabled, every edge also keeps all-moves-as-first statistics: the results of the
+ * simulations through its node in which its move was played later by the same player.
+ */
+final class NodePool {
+
+    /**
+     * The first edge of a node that is not expanded.
+     */
+    static final int UNEXPANDED = -1;
+    /**
+     * The first edge of a node that a worker is expanding, or the target of an edge whose node
+     * a worker is creating.
+     */
+    static final int EXPANDING = -2;
+    /**
+     * No node.
+     */
+    static final int NONE = -1;
+    /**
+     * The proof of a node that the player who is searching wins.
+     */
+    static final int PROVEN_WIN = 1;
+    /**
+     * The proof of a node that the player who is searching loses.
+     */
+    static final int PROVEN_LOSS = -1;
+    /**
+     * The approximate number of bytes used by one node and the edge leading to it.
+     */
+    static final int BYTES_PER_NODE = 4 + 1 + 8 + 8 + 1 + 1 + 4;
+    /**
+     * The number of bytes of the all-moves-as-first statistics of one edge with RAVE.
+     */
+    static final int BYTES_PER_AMAF = 4 + 4;
+    /**
+     * The proof state of a node that is not proven and that a worker has tried to solve.
+     */
+    private static final byte SOLVE_TRIED = 2;
+
+    /**
+     * The number of bits of the index within a chunk.
+     */
+    private static final int CHUNK_BITS = 16;
+    /**
+     * The number of nodes or edges in one chunk.
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /**
+     * The mask of the index within a chunk.
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /**
+     * The maximum number of chunks, which limits a pool to 2^26 nodes and 2^26 edges.
+     */
+    private static final int MAX_CHUNKS = 1 << 10;
+    /**
+     * The number of node chunks and of edge chunks that a reset keeps, which bounds the memory
+     * that an idle pool holds on to at about 4MB while a typical search still allocates nothing.
+     */
+    private static final int RETAINED_CHUNKS = 2;
+    /**
+     * Atomic access to the int arrays.
+     */
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    /**
+     * Atomic access to the byte arrays.
+     */
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    /**
+     * Atomic access to the long arrays.
+     */
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * The first edge of every node, or {@link #UNEXPANDED} or {@link #EXPANDING}.
+     */
+    private final int[][] firstEdges = new int[MAX_CHUNKS][];
+    /**
+     * The number of edges of every node.
+     */
+    private final byte[][] edgeCounts = new byte[MAX_CHUNKS][];
+    /**
+     * The winning probability numerator of every node.
+     */
+    private final long[][] wins = new long[MAX_CHUNKS][];
+    /**
+     * The winning probability denominator of every node.
+     */
+    private final long[][] visits = new long[MAX_CHUNKS][];
+    /**
+     * The proof of every node, or 0 if not proven, or {@link #SOLVE_TRIED}.
+     */
+    private final byte[][] proofs = new byte[MAX_CHUNKS][];
+    /**
+     * The move of every edge, packed as a * 9 + b.
+     */
+    private final byte[][] edgeMoves = new byte[MAX_CHUNKS][];
+    /**
+     * The node every edge leads to.
+     */
+    private final int[][] edgeTargets = new int[MAX_CHUNKS][];
+    /**
+     * The all-moves-as-first winning probability numerator of every edge, or null chunks without
+     * RAVE.
+     */
+    private final int[][] edgeAmafWins = new int[MAX_CHUNKS][];
+    /**
+     * The all-moves-as-first winning probability denominator of every edge, or null chunks
+     * without RAVE.
+     */
+    private final int[][] edgeAmafVisits = new int[MAX_CHUNKS][];
+    /**
+     * The number of allocated nodes.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+    /**
+     * The number of allocated edges.
+     */
+    private final AtomicInteger edgeSize = new AtomicInteger();
+    /**
+     * The number of node chunks that have been created.
+     */
+    private volatile int chunkCount;
+    /**
+     * The number of edge chunks that have been created.
+     */
+    private volatile int edgeChunkCount;
+    /**
+     * The transposition table of the graph, or null if transpositions are not detected.
+     */
+    private TranspositionTable transpositions;
+    /**
+     * The exploration weight of the upper confidence bound.
+     */
+    private double exploration = 2;
+    /**
+     * The RAVE equivalence parameter, or 0 without RAVE.
+     */
+    private int raveEquivalence;
+    /**
+     * Whether moves are added to the graph one at a time.
+     */
+    private boolean progressiveExpansion;
+    /**
+     * The number of empty tiles at or below which nodes are solved exactly.
+     */
+    private int solverThreshold;
+    /**
+     * The maximum number of nodes and of edges that the search grows the graph to.
+     */
+    private int nodeLimit = Integer.MAX_VALUE;
+    /**
+     * The node of this pool copied from every node of the source pool while copying a subtree.
+     */
+    private int[] copyTargets = new int[0];
+    /**
+     * The source node of every node of this pool while copying a subtree.
+     */
+    private int[] copySources = new int[0];
+
+    /**
+     * Forget all nodes and transpositions but keep the first chunks for the next search. The
+     * chunks above {@link #RETAINED_CHUNKS} are freed, so that a pool that once held a large
+     * tree does not keep its memory for the lifetime of its thread.
+     * Requires: no worker is using the pool.
+     */
+    synchronized void reset() {
+        size.set(0);
+        edgeSize.set(0);
+        if (transpositions != null) {
+            transpositions.clear();
+        }
+        for (int i = RETAINED_CHUNKS; i < chunkCount; i++) {
+            firstEdges[i] = null;
+            edgeCounts[i] = null;
+            wins[i] = null;
+            visits[i] = null;
+            proofs[i] = null;
+        }
+        chunkCount = Math.min(chunkCount, RETAINED_CHUNKS);
+        for (int i = RETAINED_CHUNKS; i < edgeChunkCount; i++) {
+            edgeMoves[i] = null;
+            edgeTargets[i] = null;
+            edgeAmafWins[i] = null;
+            edgeAmafVisits[i] = null;
+        }
+        edgeChunkCount = Math.min(edgeChunkCount, RETAINED_CHUNKS);
+        if (copyTargets.length > RETAINED_CHUNKS * CHUNK_SIZE) {
+            copyTargets = new int[0];
+            copySources = new int[0];
+        }
+    }
+
+    /**
+     * Set the size of the transposition table. A table that is already large enough is kept.
+     * Requires: no worker is using the pool.
+     *
+     * @param entries the number of entries, or 0 to not detect transpositions.
+     */
+    void setTranspositionTableSize(int entries) {
+        if (entries == 0) {
+            transpositions = null;
+        } else if (transpositions == null || transpositions.capacity() < entries) {
+            transpositions = new TranspositionTable(entries);
+        }
+    }
+
+    /**
+     * Requires: no worker is using the pool.
+     *
+     * @param exploration the exploration weight of the upper confidence bound.
+     */
+    void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * @return the exploration weight of the upper confidence bound.
+     */
+    double exploration() {
+        return exploration;
+    }
+
+    /**
+     * Set the RAVE equivalence parameter, which enables the all-moves-as-first statistics of
+     * edges. Edges that already exist start with empty statistics.
+     * Requires: no worker is using the pool.
+     *
+     * @param equivalence the number of simulations of a node at which its own statistics and the
+     * all-moves-as-first statistics weigh the same, or 0 to disable RAVE.
+     */
+    synchronized void setRaveEquivalence(int equivalence) {
+        if (equivalence > 0 && raveEquivalence == 0) {
+            for (int i = 0; i < edgeChunkCount; i++) {
+                edgeAmafWins[i] = new int[CHUNK_SIZE];
+                edgeAmafVisits[i] = new int[CHUNK_SIZE];
+            }
+        } else if (equivalence == 0) {
+            Arrays.fill(edgeAmafWins, null);
+            Arrays.fill(edgeAmafVisits, null);
+        }
+        raveEquivalence = equivalence;
+    }
+
+    /**
+     * @return the RAVE equivalence parameter, or 0 without RAVE.
+     */
+    int raveEquivalence() {
+        return raveEquivalence;
+    }
+
+    /**
+     * Requires: no worker is using the pool.
+     *
+     * @param progressiveExpansion whether moves are added to the graph one at a time.
+     */
+    void setProgressiveExpansion(boolean progressiveExpansion) {
+        this.progressiveExpansion = progressiveExpansion;
+    }
+
+    /**
+     * @return whether moves are added to the graph one at a time.
+     */
+    boolean isProgressiveExpansion() {
+        return progressiveExpansion;
+    }
+
+    /**
+     * Requires: no worker is using the pool.
+     *
+     * @param emptyTiles the number of empty tiles at or below which nodes are solved exactly,
+     * or 0 to never solve.
+     */
+    void setSolverThreshold(int emptyTiles) {
+        solverThreshold = emptyTiles;
+    }
+
+    /**
+     * @return the number of empty tiles at or below which nodes are solved exactly.
+     */
+    int solverThreshold() {
+        return solverThreshold;
+    }
+
+    /**
+     * Requires: no worker is using the pool.
+     *
+     * @param nodes the maximum number of nodes and of edges that the search grows the graph to.
+     */
+    void setNodeLimit(int nodes) {
+        nodeLimit = nodes;
+    }
+
+    /**
+     * Check whether the graph can grow by some nodes or edges within its node limit. Workers
+     * check before they allocate, so concurrent workers can exceed the limit by at most one
+     * expansion each.
+     *
+     * @param count the number of nodes or edges to add.
+     * @return whether there is room for them.
+     */
+    boolean hasRoom(int count) {
+        return size.get() <= nodeLimit - count && edgeSize.get() <= nodeLimit - count;
+    }
+
+    /**
+     * @return the number of allocated nodes.
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Allocate a node. The node must be initialized before being published.
+     *
+     * @return the node.
+     */
+    int allocate() {
+        int node = size.getAndIncrement();
+        if (node < 0 || node >= MAX_CHUNKS * CHUNK_SIZE) {
+            size.getAndDecrement();
+            throw new IllegalStateException("The node pool is full!");
+        }
+        if ((node >>> CHUNK_BITS) >= chunkCount) {
+            addChunks((node >>> CHUNK_BITS) + 1);
+        }
+        return node;
+    }
+
+    /**
+     * Allocate a contiguous range of edges. The edges must be initialized before being published.
+     *
+     * @param count the number of edges to allocate.
+     * @return the first edge.
+     */
+    int allocateEdges(int count) {
+        if (count == 0) {
+            return edgeSize.get();
+        }
+        int start = edgeSize.getAndAdd(count);
+        int end = start + count;
+        if (end < 0 || end > MAX_CHUNKS * CHUNK_SIZE) {
+            edgeSize.getAndAdd(-count);
+            throw new IllegalStateException("The node pool is full!");
+        }
+        int neededChunks = ((end - 1) >>> CHUNK_BITS) + 1;
+        if (neededChunks > edgeChunkCount) {
+            addEdgeChunks(neededChunks);
+        }
+        return start;
+    }
+
+    /**
+     * Create node chunks until there are enough chunks. Chunk creation is rare, so it is
+     * synchronized.
+     *
+     * @param neededChunks the number of chunks needed.
+     */
+    private synchronized void addChunks(int neededChunks) {
+        for (int i = chunkCount; i < neededChunks; i++) {
+            firstEdges[i] = new int[CHUNK_SIZE];
+            edgeCounts[i] = new byte[CHUNK_SIZE];
+            wins[i] = new long[CHUNK_SIZE];
+            visits[i] = new long[CHUNK_SIZE];
+            proofs[i] = new byte[CHUNK_SIZE];
+        }
+        if (neededChunks > chunkCount) {
+            chunkCount = neededChunks;
+        }
+    }
+
+    /**
+     * Create edge chunks until there are enough chunks.
+     *
+     * @param neededChunks the number of chunks needed.
+     */
+    private synchronized void addEdgeChunks(int neededChunks) {
+        for (int i = edgeChunkCount; i < neededChunks; i++) {
+            edgeMoves[i] = new byte[CHUNK_SIZE];
+            edgeTargets[i] = new int[CHUNK_SIZE];
+            if (raveEquivalence > 0) {
+                edgeAmafWins[i] = new int[CHUNK_SIZE];
+                edgeAmafVisits[i] = new int[CHUNK_SIZE];
+            }
+        }
+        if (neededChunks > edgeChunkCount) {
+            edgeChunkCount = neededChunks;
+        }
+    }
+
+    /**
+     * Initialize a newly allocated node.
+     *
+     * @param node the node.
+     * @param winCount the initial winning probability numerator.
+     * @param simulations the initial winning probability denominator.
+     */
+    void init(int node, long winCount, long simulations) {
+        int chunk = node >>> CHUNK_BITS, offset = node & CHUNK_MASK;
+        firstEdges[chunk][offset] = UNEXPANDED;
+        edgeCounts[chunk][offset] = 0;
+        wins[chunk][offset] = winCount;
+        visits[chunk][offset] = simulations;
+        proofs[chunk][offset] = 0;
+    }
+
+    /**
+     * Initialize a newly allocated edge.
+     *
+     * @param edge the edge.
+     * @param move the move as a * 9 + b.
+     * @param target the node the move leads to, or {@link #NONE} for an untried move.
+     */
+    void initEdge(int edge, int move, int target) {
+        int chunk = edge >>> CHUNK_BITS, offset = edge & CHUNK_MASK;
+        edgeMoves[chunk][offset] = (byte) move;
+        edgeTargets[chunk][offset] = target;
+        if (raveEquivalence > 0) {
+            edgeAmafWins[chunk][offset] = 0;
+            edgeAmafVisits[chunk][offset] = 0;
+        }
+    }
+
+    /**
+     * @param edge the edge.
+     * @return the move of the edge as a * 9 + b.
+     */
+    int edgeMove(int edge) {
+        return edgeMoves[edge >>> CHUNK_BITS][edge & CHUNK_MASK];
+    }
+
+    /**
+     * @param edge the edge.
+     * @return the node the move of the edge leads to, {@link #NONE} if the move is untried, or
+     * {@link #EXPANDING} if a worker is creating the node.
+     */
+    int edgeTarget(int edge) {
+        return (int) INTS.getAcquire(edgeTargets[edge >>> CHUNK_BITS], edge & CHUNK_MASK);
+    }
+
+    /**
+     * @param edge an edge.
+     * @return whether the calling worker won the right to create the node of the untried move.
+     */
+    boolean tryClaimEdge(int edge) {
+        return INTS.compareAndSet(
+                edgeTargets[edge >>> CHUNK_BITS], edge & CHUNK_MASK, NONE, EXPANDING);
+    }
+
+    /**
+     * Make the initialized node of a tried move visible to other workers.
+     * Requires: the calling worker has claimed the edge.
+     *
+     * @param edge the edge.
+     * @param target the node the move leads to.
+     */
+    void publishEdgeTarget(int edge, int target) {
+        INTS.setRelease(edgeTargets[edge >>> CHUNK_BITS], edge & CHUNK_MASK, target);
+    }
+
+    /**
+     * Requires: RAVE is enabled.
+     *
+     * @param edge the edge.
+     * @return the all-moves-as-first winning probability numerator.
+     */
+    int amafWins(int edge) {
+        return (int) INTS.getOpaque(edgeAmafWins[edge >>> CHUNK_BITS], edge & CHUNK_MASK);
+    }
+
+    /**
+     * Requires: RAVE is enabled.
+     *
+     * @param edge the edge.
+     * @return the all-moves-as-first winning probability denominator.
+     */
+    int amafVisits(int edge) {
+        return (int) INTS.getOpaque(edgeAmafVisits[edge >>> CHUNK_BITS], edge & CHUNK_MASK);
+    }
+
+    /**
+     * Atomically add to the all-moves-as-first statistics of an edge.
+     * Requires: RAVE is enabled.
+     *
+     * @param edge the edge.
+     * @param winCount the win count to add.
+     * @param simulations the number of simulations to add.
+     */
+    void updateAmaf(int edge, int winCount, int simulations) {
+        int chunk = edge >>> CHUNK_BITS, offset = edge & CHUNK_MASK;
+        INTS.getAndAdd(edgeAmafWins[chunk], offset, winCount);
+        INTS.getAndAdd(edgeAmafVisits[chunk], offset, simulations);
+    }
+
+    /**
+     * @param node the node.
+     * @return the first edge, or a negative value if the node has no published edges.
+     */
+    int firstEdge(int node) {
+        return (int) INTS.getAcquire(firstEdges[node >>> CHUNK_BITS], node & CHUNK_MASK);
+    }
+
+    /**
+     * Requires: the first edge of the node has been read and is not negative.
+     *
+     * @param node the node.
+     * @return the number of edges.
+     */
+    int edgeCount(int node) {
+        return edgeCounts[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    /**
+     * @param node the node.
+     * @return whether the calling worker won the right to expand the node.
+     */
+    boolean tryClaimExpansion(int node) {
+        return INTS.compareAndSet(
+                firstEdges[node >>> CHUNK_BITS], node & CHUNK_MASK, UNEXPANDED, EXPANDING);
+    }
+
+    /**
+     * Make initialized edges visible to other workers.
+     * Requires: the calling worker has claimed the expansion of the node.
+     *
+     * @param node the node.
+     * @param firstEdge the first edge.
+     * @param edgeCount the number of edges.
+     */
+    void publishEdges(int node, int firstEdge, int edgeCount) {
+        int chunk = node >>> CHUNK_BITS, offset = node & CHUNK_MASK;
+        edgeCounts[chunk][offset] = (byte) edgeCount;
+        INTS.setRelease(firstEdges[chunk], offset, firstEdge);
+    }
+
+    /**
+     * @param node the node.
+     * @return the winning probability numerator.
+     */
+    long wins(int node) {
+        return (long) LONGS.getOpaque(wins[node >>> CHUNK_BITS], node & CHUNK_MASK);
+    }
+
+    /**
+     * @param node the node.
+     * @return the winning probability denominator.
+     */
+    long visits(int node) {
+        return (long) LONGS.getOpaque(visits[node >>> CHUNK_BITS], node & CHUNK_MASK);
+    }
+
+    /**
+     * Atomically add to the winning probability tracker of a node.
+     *
+     * @param node the node.
+     * @param winCount the win count to add.
+     * @param simulations the number of simulations to add.
+     */
+    void update(int node, long winCount, long simulations) {
+        int chunk = node >>> CHUNK_BITS, offset = node & CHUNK_MASK;
+        LONGS.getAndAdd(wins[chunk], offset, winCount);
+        LONGS.getAndAdd(visits[chunk], offset, simulations);
+    }
+
+    /**
+     * @param node the node.
+     * @return {@link #PROVEN_WIN}, {@link #PROVEN_LOSS}, or 0 if the node is not proven.
+     */
+    int proof(int node) {
+        int proof = (byte) BYTES.getOpaque(proofs[node >>> CHUNK_BITS], node & CHUNK_MASK);
+        return proof == SOLVE_TRIED ? 0 : proof;
+    }
+
+    /**
+     * Prove a node. A position has only one value, so concurrent proofs agree.
+     *
+     * @param node the node.
+     * @param proof {@link #PROVEN_WIN} or {@link #PROVEN_LOSS}.
+     */
+    void prove(int node, int proof) {
+        BYTES.setOpaque(proofs[node >>> CHUNK_BITS], node & CHUNK_MASK, (byte) proof);
+    }
+
+    /**
+     * @param node a node that is not proven.
+     * @return whether the calling worker won the right to solve the node, which is tried at
+     * most once.
+     */
+    boolean tryClaimSolve(int node) {
+        return BYTES.compareAndSet(
+                proofs[node >>> CHUNK_BITS], node & CHUNK_MASK, (byte) 0, SOLVE_TRIED);
+    }
+
+    /**
+     * @param hash the Zobrist hash of a position.
+     * @return the node of the position, or {@link #NONE} if it is not known.
+     */
+    int findTransposition(long hash) {
+        TranspositionTable table = transpositions;
+        return table == null ? NONE : table.find(hash);
+    }
+
+    /**
+     * Record the node of a position, so that other move orders reaching it share the node.
+     * Requires: the node is initialized.
+     *
+     * @param hash the Zobrist hash of the position.
+     * @param node the node.
+     */
+    void recordTransposition(long hash, int node) {
+        TranspositionTable table = transpositions;
+        if (table != null) {
+            table.put(hash, node, this);
+        }
+    }
+
+    /**
+     * Replace the content of this pool with a copy of the graph reachable from a node in another
+     * pool. The node becomes the root (node 0), and the copy is compacted. Shared nodes stay
+     * shared, but the transposition table starts empty since nodes do not keep their hashes.
+     * A root that was proven by a solve has no moves to answer with, so its proof is dropped,
+     * and it is proven again through its moves.
+     * Requires: no worker is using either pool.
+     *
+     * @param source the pool to copy from.
+     * @param node the root of the graph to copy.
+     * @param flipWins whether to count the wins of the other player, which is needed when the
+     * player to move on the new root is not the player to move on the old root.
+     */
+    void copySubtree(NodePool source, int node, boolean flipWins) {
+        reset();
+        setRaveEquivalence(source.raveEquivalence());
+        exploration = source.exploration;
+        progressiveExpansion = source.progressiveExpansion;
+        solverThreshold = source.solverThreshold;
+        nodeLimit = source.nodeLimit;
+        copyTargets = ensureCapacity(copyTargets, source.size());
+        Arrays.fill(copyTargets, 0, source.size(), NONE);
+        copyNode(source, node, flipWins);
+        // Nodes are copied in breadth first order, so the nodes of this pool form the queue.
+        for (int copied = 0; copied < size(); copied++) {
+            int original = copySources[copied];
+            int firstEdge = source.firstEdge(original);
+            if (firstEdge < 0) {
+                continue;
+            }
+            int count = source.edgeCount(original);
+            int newFirstEdge = allocateEdges(count);
+            for (int i = 0; i < count; i++) {
+                int target = source.edgeTarget(firstEdge + i);
+                int newTarget = target < 0 ? NONE : copyTargets[target];
+                if (target >= 0 && newTarget == NONE) {
+                    newTarget = copyNode(source, target, flipWins);
+                }
+                initEdge(newFirstEdge + i, source.edgeMove(firstEdge + i), newTarget);
+                if (raveEquivalence > 0) {
+                    int amafWins = source.amafWins(firstEdge + i);
+                    int amafVisits = source.amafVisits(firstEdge + i);
+                    updateAmaf(newFirstEdge + i,
+                            flipWins ? amafVisits - amafWins : amafWins, amafVisits);
+                }
+            }
+            publishEdges(copied, newFirstEdge, count);
+        }
+        if (firstEdge(0) < 0) {
+            BYTES.setOpaque(proofs[0], 0, (byte) 0);
+        }
+    }
+
+    /**
+     * Copy the statistics of a node of another pool into a new node.
+     *
+     * @param source the pool to copy from.
+     * @param node the node to copy.
+     * @param flipWins whether to count the wins of the other player.
+     * @return the new node.
+     */
+    private int copyNode(NodePool source, int node, boolean flipWins) {
+        long nodeWins = source.wins(node), nodeVisits = source.visits(node);
+        int target = allocate();
+        init(target, flipWins ? nodeVisits - nodeWins : nodeWins, nodeVisits);
+        int proof = source.proof(node);
+        if (proof != 0) {
+            prove(target, flipWins ? -proof : proof);
+        }
+        copyTargets[node] = target;
+        copySources = ensureCapacity(copySources, target + 1);
+        copySources[target] = node;
+        return target;
+    }
+
+    /**
+     * @param array an array.
+     * @param capacity the needed capacity.
+     * @return the array or a larger copy of it.
+     */
+    private static int[] ensureCapacity(int[] array, int capacity) {
+        if (array.length >= capacity) {
+            return array;
+        }
+        return Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+    }
+
+}
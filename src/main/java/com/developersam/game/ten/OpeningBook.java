@@ -0,0 +1,320 @@
+package com.developersam.game.ten;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A book of precomputed decisions for early positions, stored in a memory-mapped file.
+ * <p>
+ * Positions are keyed by their canonical hash: the smallest Zobrist hash over the 8 symmetries
+ * of the 3x3 grid, applied to both the big square and the small square index of every tile, so
+ * that symmetric positions share one entry. Moves are stored in the orientation of the canonical
+ * position and mapped back on lookup.
+ * <p>
+ * The file starts with a 12 byte header (magic, version, number of entries) followed by fixed
+ * size entries sorted by key, so a lookup is a binary search over the mapped file without any
+ * parsing or allocation beyond the response.
+ */
+final class OpeningBook {
+
+    /**
+     * The system property with the path of the book used by {@link Board#respondToClient}.
+     */
+    static final String PATH_PROPERTY = "com.developersam.game.ten.openingBook";
+    /**
+     * The new index of every index of the 3x3 grid under each of the 8 symmetries: the 4
+     * rotations and the 4 reflections.
+     */
+    static final int[][] SYMMETRIES = new int[8][9];
+    /**
+     * The inverse of every symmetry in {@link #SYMMETRIES}.
+     */
+    private static final int[][] INVERSES = new int[8][9];
+    /**
+     * The magic number at the start of every book file, "TENB".
+     */
+    private static final int MAGIC = 0x54454E42;
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+    /**
+     * The number of bytes of the header.
+     */
+    private static final int HEADER_BYTES = 12;
+    /**
+     * The number of bytes of an entry: the key (8), the number of simulations (4), the move (1),
+     * the winning percentage (1) and padding (2).
+     */
+    private static final int ENTRY_BYTES = 16;
+
+    static {
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            for (int i = 0; i < 9; i++) {
+                int row = i / 3, column = i % 3;
+                // Rotate by 90 degrees once per rotation, then reflect for the last 4.
+                for (int r = 0; r < (symmetry & 3); r++) {
+                    int rotatedRow = column;
+                    column = 2 - row;
+                    row = rotatedRow;
+                }
+                if (symmetry >= 4) {
+                    column = 2 - column;
+                }
+                SYMMETRIES[symmetry][i] = row * 3 + column;
+                INVERSES[symmetry][row * 3 + column] = i;
+            }
+        }
+    }
+
+    /**
+     * The entries, read with absolute gets only so that the buffer can be shared by threads.
+     */
+    private final ByteBuffer entries;
+    /**
+     * The number of entries.
+     */
+    private final int size;
+
+    /**
+     * @param entries the entries.
+     * @param size the number of entries.
+     */
+    private OpeningBook(ByteBuffer entries, int size) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    /**
+     * Memory-map a book file.
+     *
+     * @param path the path of the file.
+     * @return the book.
+     * @throws IOException if the file cannot be read or is not a book.
+     */
+    @NotNull
+    static OpeningBook open(@NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC
+                    || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            int size = buffer.getInt(8);
+            if (size < 0 || buffer.limit() != HEADER_BYTES + (long) size * ENTRY_BYTES) {
+                throw new IOException("Corrupted opening book: " + path);
+            }
+            return new OpeningBook(buffer, size);
+        }
+    }
+
+    /**
+     * @return the book at the path of {@link #PATH_PROPERTY}, or null if the property is not
+     * set or the book cannot be opened.
+     */
+    @Nullable
+    static OpeningBook getDefault() {
+        return DefaultHolder.BOOK;
+    }
+
+    /**
+     * @return the number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param board a board.
+     * @return the symmetry that transforms the board into its canonical position.
+     */
+    static int canonicalSymmetry(@NotNull Board board) {
+        int canonical = 0;
+        long min = board.getSymmetricHash(SYMMETRIES[0]);
+        for (int symmetry = 1; symmetry < 8; symmetry++) {
+            long hash = board.getSymmetricHash(SYMMETRIES[symmetry]);
+            if (hash < min) {
+                min = hash;
+                canonical = symmetry;
+            }
+        }
+        return canonical;
+    }
+
+    /**
+     * @param board a board.
+     * @return the hash of the canonical position of the board, which is the same for all
+     * symmetric boards.
+     */
+    static long canonicalHash(@NotNull Board board) {
+        return board.getSymmetricHash(SYMMETRIES[canonicalSymmetry(board)]);
+    }
+
+    /**
+     * @param move a move as a * 9 + b.
+     * @param symmetry the symmetry.
+     * @return the move transformed by the symmetry.
+     */
+    static int transform(int move, int symmetry) {
+        int[] indices = SYMMETRIES[symmetry];
+        return indices[move / 9] * 9 + indices[move % 9];
+    }
+
+    /**
+     * @param move a move as a * 9 + b in the orientation of the canonical position.
+     * @param symmetry the symmetry that transforms the board into its canonical position.
+     * @return the move in the orientation of the board.
+     */
+    @NotNull
+    static Move inverseTransform(int move, int symmetry) {
+        int[] inverse = INVERSES[symmetry];
+        return new Move(inverse[move / 9], inverse[move % 9]);
+    }
+
+    /**
+     * Find the decision of a board in the book.
+     *
+     * @param board the board.
+     * @return the response with the move mapped to the orientation of the board, or null if the
+     * position is not in the book.
+     */
+    @Nullable
+    ServerResponse lookup(@NotNull Board board) {
+        int symmetry = canonicalSymmetry(board);
+        long key = board.getSymmetricHash(SYMMETRIES[symmetry]);
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = HEADER_BYTES + mid * ENTRY_BYTES;
+            long midKey = entries.getLong(offset);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                int simulations = entries.getInt(offset + 8);
+                int canonicalMove = entries.get(offset + 12);
+                int winningPercentage = entries.get(offset + 13);
+                return new ServerResponse(
+                        inverseTransform(canonicalMove, symmetry), winningPercentage, simulations);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Write a book file. Entries with the same key are written once.
+     *
+     * @param path the path of the file.
+     * @param bookEntries the entries in any order.
+     * @throws IOException if the file cannot be written.
+     */
+    static void write(@NotNull Path path, @NotNull List<Entry> bookEntries) throws IOException {
+        List<Entry> sorted = new ArrayList<>(bookEntries);
+        sorted.sort(Comparator.comparingLong(entry -> entry.key));
+        List<Entry> unique = new ArrayList<>(sorted.size());
+        for (Entry entry : sorted) {
+            if (unique.isEmpty() || unique.get(unique.size() - 1).key != entry.key) {
+                unique.add(entry);
+            }
+        }
+        try (OutputStream file = Files.newOutputStream(path);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(unique.size());
+            for (Entry entry : unique) {
+                out.writeLong(entry.key);
+                out.writeInt(entry.simulations);
+                out.writeByte(entry.move);
+                out.writeByte(entry.winningPercentage);
+                out.writeShort(0);
+            }
+        }
+    }
+
+    /**
+     * The decision of one canonical position in the book.
+     */
+    static final class Entry {
+
+        /**
+         * The canonical hash of the position.
+         */
+        final long key;
+        /**
+         * The decided move in the orientation of the canonical position, as a * 9 + b.
+         */
+        final int move;
+        /**
+         * The winning probability of the decided move.
+         */
+        final int winningPercentage;
+        /**
+         * The number of simulations done to decide.
+         */
+        final int simulations;
+
+        /**
+         * Create the entry of a board from the decision of a search on that board.
+         *
+         * @param board the board.
+         * @param move the decided move on the board.
+         * @param winningPercentage the winning probability of the decided move.
+         * @param simulations the number of simulations done to decide.
+         */
+        Entry(@NotNull Board board, @NotNull Move move, int winningPercentage, int simulations) {
+            int symmetry = canonicalSymmetry(board);
+            this.key = board.getSymmetricHash(SYMMETRIES[symmetry]);
+            this.move = transform(move.a * 9 + move.b, symmetry);
+            this.winningPercentage = winningPercentage;
+            this.simulations = simulations;
+        }
+
+    }
+
+    /**
+     * The lazily opened default book.
+     */
+    private static final class DefaultHolder {
+
+        /**
+         * The default book, or null if there is none.
+         */
+        @Nullable
+        private static final OpeningBook BOOK = openDefault();
+
+        /**
+         * @return the book at the path of {@link #PATH_PROPERTY}, or null.
+         */
+        @Nullable
+        private static OpeningBook openDefault() {
+            String path = System.getProperty(PATH_PROPERTY);
+            if (path == null) {
+                return null;
+            }
+            try {
+                return open(Paths.get(path));
+            } catch (IOException e) {
+                System.err.println("Opening book disabled: " + e.getMessage());
+                return null;
+            }
+        }
+
+    }
+
+}
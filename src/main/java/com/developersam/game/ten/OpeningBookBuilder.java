@@ -0,0 +1,101 @@
+package com.developersam.game.ten;
+
+import com.developersam.game.ten.MCTS.Decision;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The offline tool that builds an {@link OpeningBook}.
+ * <p>
+ * It enumerates every position reachable from the empty board within a number of moves, keeps one
+ * position per canonical hash, searches each of them with a long time limit, and writes the
+ * decisions to a book file.
+ * <p>
+ * Usage: {@code OpeningBookBuilder <output file> [moves = 2] [time limit per position in ms =
+ * 30000]}
+ */
+final class OpeningBookBuilder {
+
+    private OpeningBookBuilder() {
+    }
+
+    /**
+     * Enumerate the positions of the book, one per canonical hash.
+     *
+     * @param moves the maximum number of moves played from the empty board.
+     * @return the positions in breadth first order, where the game has not ended.
+     */
+    @NotNull
+    static List<Board> enumeratePositions(int moves) {
+        List<Board> positions = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        Board empty = new Board(new BoardData(new int[81], -1, 1));
+        seen.add(OpeningBook.canonicalHash(empty));
+        positions.add(empty);
+        int levelStart = 0;
+        for (int move = 0; move < moves; move++) {
+            int levelEnd = positions.size();
+            for (int i = levelStart; i < levelEnd; i++) {
+                Board board = positions.get(i);
+                for (Move legalMove : board.getAllLegalMovesForAI()) {
+                    Board next = board.makeMoveWithoutCheck(legalMove);
+                    if (next.getGameStatus() == 0 && seen.add(OpeningBook.canonicalHash(next))) {
+                        positions.add(next);
+                    }
+                }
+            }
+            levelStart = levelEnd;
+        }
+        return positions;
+    }
+
+    /**
+     * Search every position and collect the book entries.
+     *
+     * @param positions the positions.
+     * @param config the search configuration of every position.
+     * @return the book entries.
+     */
+    @NotNull
+    static List<OpeningBook.Entry> search(@NotNull List<Board> positions,
+                                          @NotNull SearchConfig config) {
+        List<OpeningBook.Entry> entries = new ArrayList<>(positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            Board board = positions.get(i);
+            Decision decision = MCTS.selectMove(board, config);
+            entries.add(new OpeningBook.Entry(board, decision.move,
+                    decision.winningPercentage, decision.simulationCounter));
+            System.out.println("Searched position " + (i + 1) + "/" + positions.size());
+        }
+        return entries;
+    }
+
+    /**
+     * Build a book file.
+     *
+     * @param args the output file, the number of moves and the time limit per position.
+     * @throws IOException if the book cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: OpeningBookBuilder <output file> [moves] [time limit]");
+            System.exit(1);
+        }
+        Path output = Paths.get(args[0]);
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        long timeLimit = args.length > 2 ? Long.parseLong(args[2]) : 30_000;
+        List<Board> positions = enumeratePositions(moves);
+        System.out.println("Positions to search: " + positions.size());
+        SearchConfig config = SearchConfig.DEFAULT.withTimeLimit(timeLimit);
+        OpeningBook.write(output, search(positions, config));
+        System.out.println("Opening book written to " + output);
+    }
+
+}
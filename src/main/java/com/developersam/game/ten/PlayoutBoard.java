@@ -0,0 +1,270 @@
+package com.developersam.game.ten;
+
+import org.jetbrains.annotations.NotNull;
+
+import static com.developersam.game.ten.Board.HIGH_WORD_BIG_SQUARE;
+import static com.developersam.game.ten.Board.SQUARE_MASK;
+
+/**
+ * A mutable scratch board for random playouts.
+ * It uses the same bitboard layout as {@link Board}, but moves are made in place, so a playout
+ * does not allocate anything. Legal moves are represented as bitmasks over the two tile words,
+ * and tile index a * 9 + b is bit a * 9 + b of the low word or bit a * 9 + b - 63 of the high word.
+ */
+final class PlayoutBoard {
+
+    /**
+     * The number of tiles stored in the low tile word.
+     */
+    static final int LOW_WORD_TILES = HIGH_WORD_BIG_SQUARE * 9;
+    /**
+     * Tiles in the low word covered by every combination of the big squares 0-6.
+     */
+    private static final long[] LOW_WORD_TILES_OF_SQUARES = new long[1 << HIGH_WORD_BIG_SQUARE];
+
+    static {
+        for (int squares = 0; squares < LOW_WORD_TILES_OF_SQUARES.length; squares++) {
+            long tiles = 0;
+            for (int a = 0; a < HIGH_WORD_BIG_SQUARE; a++) {
+                if ((squares >>> a & 1) != 0) {
+                    tiles |= (long) SQUARE_MASK << (a * 9);
+                }
+            }
+            LOW_WORD_TILES_OF_SQUARES[squares] = tiles;
+        }
+    }
+
+    /**
+     * Tiles as specified in {@link Board}.
+     */
+    private long blackTilesLow, blackTilesHigh, whiteTilesLow, whiteTilesHigh;
+    /**
+     * Big square masks as specified in {@link Board}.
+     */
+    private int blackBigSquares, whiteBigSquares, fullBigSquares;
+    /**
+     * The packed big square to pick and player as specified in {@link Board}.
+     */
+    private int state;
+    /**
+     * The Zobrist hash as specified in {@link Board}.
+     */
+    private long hash;
+
+    /**
+     * Overwrite the whole state of the board. Used by {@link Board#copyInto(PlayoutBoard)}.
+     */
+    void set(long blackTilesLow, long blackTilesHigh, long whiteTilesLow, long whiteTilesHigh,
+             int blackBigSquares, int whiteBigSquares, int fullBigSquares, int state, long hash) {
+        this.blackTilesLow = blackTilesLow;
+        this.blackTilesHigh = blackTilesHigh;
+        this.whiteTilesLow = whiteTilesLow;
+        this.whiteTilesHigh = whiteTilesHigh;
+        this.blackBigSquares = blackBigSquares;
+        this.whiteBigSquares = whiteBigSquares;
+        this.fullBigSquares = fullBigSquares;
+        this.state = state;
+        this.hash = hash;
+    }
+
+    /**
+     * Overwrite the whole state of the board with another playout board.
+     *
+     * @param other the board to copy from.
+     */
+    void copyFrom(@NotNull PlayoutBoard other) {
+        set(other.blackTilesLow, other.blackTilesHigh, other.whiteTilesLow, other.whiteTilesHigh,
+                other.blackBigSquares, other.whiteBigSquares, other.fullBigSquares, other.state,
+                other.hash);
+    }
+
+    /**
+     * @return the current player identity.
+     */
+    int getPlayerIdentity() {
+        return (state & 0x10) == 0 ? 1 : -1;
+    }
+
+    /**
+     * @param playerIdentity the identity of a player.
+     * @return the tiles of the player in the low tile word.
+     */
+    long tilesLow(int playerIdentity) {
+        return playerIdentity == 1 ? blackTilesLow : whiteTilesLow;
+    }
+
+    /**
+     * @param playerIdentity the identity of a player.
+     * @return the tiles of the player in the high tile word.
+     */
+    long tilesHigh(int playerIdentity) {
+        return playerIdentity == 1 ? blackTilesHigh : whiteTilesHigh;
+    }
+
+    /**
+     * @return the number of legal moves.
+     */
+    int countLegalMoves() {
+        return Long.bitCount(legalMovesLow()) + Long.bitCount(legalMovesHigh());
+    }
+
+    /**
+     * @return the number of tiles that are not occupied.
+     */
+    int countEmptyTiles() {
+        return 81 - Long.bitCount(blackTilesLow | whiteTilesLow)
+                - Long.bitCount(blackTilesHigh | whiteTilesHigh);
+    }
+
+    /**
+     * @return the Zobrist hash of the position.
+     */
+    long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return the game status as specified in {@link Board#getGameStatus()}.
+     */
+    int getGameStatus() {
+        return Board.gameStatus(blackBigSquares, whiteBigSquares, fullBigSquares);
+    }
+
+    /**
+     * @return legal moves in the low tile word.
+     */
+    long legalMovesLow() {
+        long empty = ~(blackTilesLow | whiteTilesLow);
+        int bigSquareToPick = (state & 0xF) - 1;
+        if (bigSquareToPick != -1) {
+            return bigSquareToPick < HIGH_WORD_BIG_SQUARE
+                    ? empty & ((long) SQUARE_MASK << (bigSquareToPick * 9)) : 0;
+        }
+        int openSquares = ~(blackBigSquares | whiteBigSquares | fullBigSquares);
+        return empty & LOW_WORD_TILES_OF_SQUARES[openSquares & ((1 << HIGH_WORD_BIG_SQUARE) - 1)];
+    }
+
+    /**
+     * @return legal moves in the high tile word.
+     */
+    long legalMovesHigh() {
+        long empty = ~(blackTilesHigh | whiteTilesHigh);
+        int bigSquareToPick = (state & 0xF) - 1;
+        int openSquares;
+        if (bigSquareToPick != -1) {
+            openSquares = 1 << bigSquareToPick;
+        } else {
+            openSquares = ~(blackBigSquares | whiteBigSquares | fullBigSquares) & SQUARE_MASK;
+        }
+        long tiles = 0;
+        if ((openSquares >>> HIGH_WORD_BIG_SQUARE & 1) != 0) {
+            tiles |= SQUARE_MASK;
+        }
+        if ((openSquares >>> (HIGH_WORD_BIG_SQUARE + 1) & 1) != 0) {
+            tiles |= (long) SQUARE_MASK << 9;
+        }
+        return empty & tiles;
+    }
+
+    /**
+     * Make a move in place without any check, and switch the current player.
+     *
+     * @param tile the tile index a * 9 + b of a legal move.
+     */
+    void makeMove(int tile) {
+        int a = tile / 9, b = tile - a * 9;
+        boolean isBlack = (state & 0x10) == 0;
+        int shift = Board.squareShift(a);
+        int status;
+        if (a < HIGH_WORD_BIG_SQUARE) {
+            if (isBlack) {
+                blackTilesLow |= 1L << tile;
+            } else {
+                whiteTilesLow |= 1L << tile;
+            }
+            status = Board.squareStatus((int) (blackTilesLow >>> shift) & SQUARE_MASK,
+                    (int) (whiteTilesLow >>> shift) & SQUARE_MASK);
+        } else {
+            if (isBlack) {
+                blackTilesHigh |= 1L << (tile - LOW_WORD_TILES);
+            } else {
+                whiteTilesHigh |= 1L << (tile - LOW_WORD_TILES);
+            }
+            status = Board.squareStatus((int) (blackTilesHigh >>> shift) & SQUARE_MASK,
+                    (int) (whiteTilesHigh >>> shift) & SQUARE_MASK);
+        }
+        if (status == 1) {
+            blackBigSquares |= 1 << a;
+        } else if (status == -1) {
+            whiteBigSquares |= 1 << a;
+        } else if (status == 2) {
+            fullBigSquares |= 1 << a;
+        }
+        int closedSquares = blackBigSquares | whiteBigSquares | fullBigSquares;
+        int bigSquareToPick = (closedSquares >>> b & 1) == 0 ? b : -1;
+        hash ^= Zobrist.moveDelta(tile, isBlack, (state & 0xF) - 1, bigSquareToPick);
+        state = ((state ^ 0x10) & 0x10) | (bigSquareToPick + 1);
+    }
+
+    /**
+     * Pick a uniformly random legal move by choosing a random set bit of the legal move masks.
+     * Requires: the game is not over.
+     *
+     * @param random the random source.
+     * @return the tile index a * 9 + b of the chosen move.
+     * @throws IllegalStateException if there is no legal move, which only happens on a position
+     * that cannot be reached in a game, like one that must be picked in a closed big square.
+     */
+    int randomLegalMove(@NotNull FastRandom random) {
+        long low = legalMovesLow(), high = legalMovesHigh();
+        int lowCount = Long.bitCount(low);
+        int count = lowCount + Long.bitCount(high);
+        if (count == 0) {
+            throw new IllegalStateException("There is no legal move!");
+        }
+        int index = random.nextInt(count);
+        if (index < lowCount) {
+            return nthSetBit(low, index);
+        }
+        return LOW_WORD_TILES + nthSetBit(high, index - lowCount);
+    }
+
+    /**
+     * Requires: n is less than the number of set bits in the word, so the word is not 0.
+     *
+     * @param word a word.
+     * @param n a number less than the number of set bits in the word.
+     * @return the position of the n-th (starting from 0) lowest set bit.
+     */
+    private static int nthSetBit(long word, int n) {
+        // Skip whole bytes first, then clear the remaining lower set bits.
+        int shift = 0;
+        int count = Long.bitCount(word & 0xFF);
+        while (count <= n) {
+            n -= count;
+            shift += 8;
+            count = Long.bitCount(word >>> shift & 0xFF);
+        }
+        long rest = word >>> shift;
+        for (int i = 0; i < n; i++) {
+            rest &= rest - 1;
+        }
+        return shift + Long.numberOfTrailingZeros(rest);
+    }
+
+    /**
+     * Play random moves in place until the game ends.
+     *
+     * @param random the random source.
+     * @return the final game status, 1 or -1.
+     */
+    int playRandomGame(@NotNull FastRandom random) {
+        int status = getGameStatus();
+        while (status == 0) {
+            makeMove(randomLegalMove(random));
+            status = getGameStatus();
+        }
+        return status;
+    }
+
+}
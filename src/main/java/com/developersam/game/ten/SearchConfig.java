@@ -0,0 +1,447 @@
+package com.developersam.game.ten;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The immutable configuration of one MCTS search.
+ * Start from {@link #DEFAULT} and derive new configurations with the with methods.
+ */
+final class SearchConfig {
+
+    /**
+     * The default configuration: 1500ms on one thread with a random seed.
+     */
+    static final SearchConfig DEFAULT = new SearchConfig();
+
+    /**
+     * The time limit in milliseconds.
+     */
+    private long timeLimit;
+    /**
+     * The number of simulations after which every tree stops, or {@link Long#MAX_VALUE}.
+     */
+    private long simulationLimit;
+    /**
+     * The number of threads that search the shared tree concurrently.
+     */
+    private int threads;
+    /**
+     * The number of independent trees searched concurrently, each by its own threads.
+     */
+    private int rootParallelism;
+    /**
+     * Whether the master seed is fixed.
+     */
+    private boolean seeded;
+    /**
+     * The master seed of all random playouts, only used when seeded.
+     */
+    private long seed;
+    /**
+     * The number of entries of the transposition table, or 0 to not detect transpositions.
+     */
+    private int transpositionTableSize;
+    /**
+     * The exploration weight w of the upper confidence bound sqrt(w * ln(N) / n).
+     */
+    private double exploration;
+    /**
+     * The RAVE equivalence parameter, or 0 without RAVE.
+     */
+    private int raveEquivalence;
+    /**
+     * Whether moves are added to the tree one at a time instead of all at once.
+     */
+    private boolean progressiveExpansion;
+    /**
+     * Whether a search stops before its time limit when the leading move cannot be overtaken.
+     */
+    private boolean earlyTermination;
+    /**
+     * The number of empty tiles at or below which positions are solved exactly.
+     */
+    private int solverThreshold;
+    /**
+     * The maximum number of nodes of a tree, or {@link Integer#MAX_VALUE}.
+     */
+    private int nodeLimit;
+    /**
+     * The maximum number of bytes of a tree and its transposition table, or
+     * {@link Long#MAX_VALUE}.
+     */
+    private long memoryBudget;
+    /**
+     * The listener of the metrics of the search, or null to use the default listener.
+     */
+    @Nullable
+    private SearchListener listener;
+
+    /**
+     * Create the default configuration.
+     */
+    private SearchConfig() {
+        timeLimit = 1500;
+        simulationLimit = Long.MAX_VALUE;
+        threads = 1;
+        rootParallelism = 1;
+        seeded = false;
+        seed = 0;
+        transpositionTableSize = 1 << 18;
+        exploration = 2;
+        earlyTermination = true;
+        solverThreshold = 25;
+        nodeLimit = Integer.MAX_VALUE;
+        memoryBudget = Long.MAX_VALUE;
+    }
+
+    /**
+     * Copy a configuration so that a with method can change one field of the copy.
+     *
+     * @param other the configuration to copy.
+     */
+    private SearchConfig(SearchConfig other) {
+        timeLimit = other.timeLimit;
+        simulationLimit = other.simulationLimit;
+        threads = other.threads;
+        rootParallelism = other.rootParallelism;
+        seeded = other.seeded;
+        seed = other.seed;
+        transpositionTableSize = other.transpositionTableSize;
+        exploration = other.exploration;
+        raveEquivalence = other.raveEquivalence;
+        progressiveExpansion = other.progressiveExpansion;
+        earlyTermination = other.earlyTermination;
+        solverThreshold = other.solverThreshold;
+        nodeLimit = other.nodeLimit;
+        memoryBudget = other.memoryBudget;
+        listener = other.listener;
+    }
+
+    /**
+     * @return the time limit in milliseconds.
+     */
+    long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * @return the number of simulations after which every tree stops, or {@link Long#MAX_VALUE}.
+     */
+    long getSimulationLimit() {
+        return simulationLimit;
+    }
+
+    /**
+     * @return the number of threads that search the shared tree concurrently.
+     */
+    int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the number of independent trees searched concurrently.
+     */
+    int getRootParallelism() {
+        return rootParallelism;
+    }
+
+    /**
+     * @return whether the master seed is fixed.
+     */
+    boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * @return the master seed, only meaningful when {@link #isSeeded()}.
+     */
+    long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the number of entries of the transposition table, or 0 if transpositions are not
+     * detected.
+     */
+    int getTranspositionTableSize() {
+        return transpositionTableSize;
+    }
+
+    /**
+     * @return the exploration weight of the upper confidence bound.
+     */
+    double getExploration() {
+        return exploration;
+    }
+
+    /**
+     * @return the RAVE equivalence parameter, or 0 without RAVE.
+     */
+    int getRaveEquivalence() {
+        return raveEquivalence;
+    }
+
+    /**
+     * @return whether moves are added to the tree one at a time instead of all at once.
+     */
+    boolean isProgressiveExpansion() {
+        return progressiveExpansion;
+    }
+
+    /**
+     * @return whether a search stops before its time limit when the leading move cannot be
+     * overtaken.
+     */
+    boolean isEarlyTermination() {
+        return earlyTermination;
+    }
+
+    /**
+     * @return the number of empty tiles at or below which positions are solved exactly.
+     */
+    int getSolverThreshold() {
+        return solverThreshold;
+    }
+
+    /**
+     * @return the maximum number of nodes of a tree from both the node limit and the memory
+     * budget, which also limits its edges.
+     */
+    int getNodeLimit() {
+        if (memoryBudget == Long.MAX_VALUE) {
+            return nodeLimit;
+        }
+        long bytesPerNode = NodePool.BYTES_PER_NODE
+                + (raveEquivalence > 0 ? NodePool.BYTES_PER_AMAF : 0);
+        long treeBytes = memoryBudget
+                - (long) TranspositionTable.BYTES_PER_ENTRY * transpositionTableSize;
+        return (int) Math.max(Math.min(treeBytes / bytesPerNode, nodeLimit), 1);
+    }
+
+    /**
+     * @return the listener of the metrics of the search, or null to use the default listener.
+     */
+    @Nullable
+    SearchListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @param timeLimit the time limit in milliseconds.
+     * @return a new configuration with the given time limit.
+     */
+    SearchConfig withTimeLimit(long timeLimit) {
+        if (timeLimit < 0) {
+            throw new IllegalArgumentException("Time limit must be non-negative!");
+        }
+        SearchConfig config = new SearchConfig(this);
+        config.timeLimit = timeLimit;
+        return config;
+    }
+
+    /**
+     * Stop every tree after a number of simulations, even if time is left. With a time limit
+     * that is long enough, a single-threaded seeded search then gives the same decision on every
+     * machine, which is what benchmarks and fixed-simulation matches need.
+     *
+     * @param simulations the number of simulations of every tree.
+     * @return a new configuration with the given simulation limit.
+     */
+    SearchConfig withSimulationLimit(long simulations) {
+        if (simulations < 1) {
+            throw new IllegalArgumentException("There must be at least one simulation!");
+        }
+        SearchConfig config = new SearchConfig(this);
+        config.simulationLimit = simulations;
+        return config;
+    }
+
+    /**
+     * @param threads the number of threads that search the shared tree concurrently.
+     * @return a new configuration with the given number of threads.
+     */
+    SearchConfig withThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("There must be at least one thread!");
+        }
+        SearchConfig config = new SearchConfig(this);
+        config.threads = threads;
+        return config;
+    }
+
+    /**
+     * Search several independent trees concurrently and merge their root statistics.
+     * Each tree is searched by {@link #getThreads()} threads, so pure root parallelism over
+     * k cores is {@code withThreads(1).withRootParallelism(k)}.
+     *
+     * @param trees the number of independent trees.
+     * @return a new configuration with the given root parallelism.
+     */
+    SearchConfig withRootParallelism(int trees) {
+        if (trees < 1) {
+            throw new IllegalArgumentException("There must be at least one tree!");
+        }
+        SearchConfig config = new SearchConfig(this);
+        config.rootParallelism = trees;
+        return config;
+    }
+
+    /**
+     * @param seed the master seed of all random playouts.
+     * @return a new configuration with the given fixed seed.
+     */
+    SearchConfig withSeed(long seed) {
+        SearchConfig config = new SearchConfig(this);
+        config.seeded = true;
+        config.seed = seed;
+        return config;
+    }
+
+    /**
+     * Detect transpositions with a table of a fixed number of entries, so that positions reached
+     * by different move orders share their statistics. Each entry takes
+     * {@link TranspositionTable#BYTES_PER_ENTRY} bytes, and the size is rounded up to a power of
+     * two.
+     *
+     * @param entries the number of entries, or 0 to not detect transpositions.
+     * @return a new configuration with the given transposition table size.
+     */
+    SearchConfig withTranspositionTableSize(int entries) {
+        if (entries < 0 || entries > 1 << 29) {
+            throw new IllegalArgumentException("Transposition table size is out of range!");
+        }
+        SearchConfig config = new SearchConfig(this);
+        config.transpositionTableSize = entries;
+        return config;
+    }
+
+    /**
+     * Change the balance between exploration and exploitation in the selection. A move is rated
+     * by its winning probability plus sqrt(w * ln(N) / n), where n is the number of simulations
+     * of the move and N the number of simulations of its parent. The default weight is 2.
+     *
+     * @param exploration the weight w.
+     * @return a new configuration with the given exploration weight.
+     */
+    SearchConfig withExploration(double exploration) {
+        if (!(exploration >= 0) || Double.isInfinite(exploration)) {
+            throw new IllegalArgumentException("Exploration must be finite and non-negative!");
+        }
+        SearchConfig config = new SearchConfig(this);
+        config.exploration = exploration;
+        return config;
+    }
+
+    /**
+     * Blend all-moves-as-first statistics into the selection (RAVE). A move is then also rated
+     * by the simulations in which it was played later by the same player, with a weight of
+     * sqrt(k / (3n + k)) that decays as the node gets n simulations of its own.
+     *
+     * @param equivalence the parameter k, or 0 to disable RAVE.
+     * @return a new configuration with the given RAVE equivalence parameter.
+     */
+    SearchConfig withRaveEquivalence(int equivalence) {
+        if (equivalence < 0) {
+            throw new IllegalArgumentException("RAVE equivalence must be non-negative!");
+        }
+        SearchConfig config = new SearchConfig(this);
+        config.raveEquivalence = equivalence;
+        return config;
+    }
+
+    /**
+     * Add the moves of a node to the tree one at a time. By default, a selected leaf gets a
+     * child for every legal move at once, with one simulation each. With progressive expansion,
+     * it only gets its moves, and every iteration turns one untried move into a child with one
+     * simulation, so an iteration is short and untried moves cost no node.
+     *
+     * @param progressiveExpansion whether moves are added one at a time.
+     * @return a new configuration with the given expansion mode.
+     */
+    SearchConfig withProgressiveExpansion(boolean progressiveExpansion) {
+        SearchConfig config = new SearchConfig(this);
+        config.progressiveExpansion = progressiveExpansion;
+        return config;
+    }
+
+    /**
+     * Stop a search before its time limit when the most visited move is also the best one and
+     * cannot lose its lead in the remaining time. It is on by default, and it never applies to
+     * a search with a simulation limit.
+     *
+     * @param earlyTermination whether a search can stop early.
+     * @return a new configuration with the given early termination.
+     */
+    SearchConfig withEarlyTermination(boolean earlyTermination) {
+        SearchConfig config = new SearchConfig(this);
+        config.earlyTermination = earlyTermination;
+        return config;
+    }
+
+    /**
+     * Solve positions exactly once few tiles are left (MCTS-Solver). A selected node with at
+     * most the given number of empty tiles is solved once, and a proven node is never simulated
+     * again. Proofs propagate up the tree: a node is won when one move is won and lost when all
+     * moves are lost. Solves that take too long are given up, so that the node is searched as
+     * usual. The default is 25 empty tiles.
+     *
+     * @param emptyTiles the number of empty tiles, or 0 to never solve.
+     * @return a new configuration with the given solver threshold.
+     */
+    SearchConfig withSolverThreshold(int emptyTiles) {
+        if (emptyTiles < 0 || emptyTiles > 81) {
+            throw new IllegalArgumentException("Solver threshold is out of range!");
+        }
+        SearchConfig config = new SearchConfig(this);
+        config.solverThreshold = emptyTiles;
+        return config;
+    }
+
+    /**
+     * Stop growing a tree after a number of nodes. Afterwards, a selected leaf is simulated
+     * instead of expanded, so the search goes on within the memory it has. The limit also
+     * applies to edges, and concurrent workers can exceed it by at most one expansion each.
+     * The root is always expanded.
+     *
+     * @param nodes the maximum number of nodes of a tree.
+     * @return a new configuration with the given node limit.
+     */
+    SearchConfig withNodeLimit(int nodes) {
+        if (nodes < 1) {
+            throw new IllegalArgumentException("There must be at least one node!");
+        }
+        SearchConfig config = new SearchConfig(this);
+        config.nodeLimit = nodes;
+        return config;
+    }
+
+    /**
+     * Limit the memory of a tree, as a node limit of what is left of the budget after the
+     * transposition table, at {@link NodePool#BYTES_PER_NODE} bytes per node and more with RAVE.
+     * Memory is allocated in chunks of nodes, so the heap use is rounded up to a whole chunk.
+     *
+     * @param bytes the maximum number of bytes of a tree and its transposition table.
+     * @return a new configuration with the given memory budget.
+     */
+    SearchConfig withMemoryBudget(long bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException("Memory budget must be positive!");
+        }
+        SearchConfig config = new SearchConfig(this);
+        config.memoryBudget = bytes;
+        return config;
+    }
+
+    /**
+     * @param listener the listener of the metrics of every searched tree, which replaces the
+     * default listener set by {@link Board#setSearchListener(SearchListener)}.
+     * @return a new configuration with the given listener.
+     */
+    SearchConfig withListener(@NotNull SearchListener listener) {
+        SearchConfig config = new SearchConfig(this);
+        config.listener = listener;
+        return config;
+    }
+
+}
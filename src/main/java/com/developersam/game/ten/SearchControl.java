@@ -0,0 +1,70 @@
+package com.developersam.game.ten;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The shared control of one running search. Other threads can stop the search early and observe
+ * the number of simulations done so far, and the search stops by itself after a number of
+ * simulations.
+ */
+final class SearchControl {
+
+    /**
+     * The number of simulations done by all workers so far.
+     */
+    private final LongAdder simulations = new LongAdder();
+    /**
+     * The number of simulations after which the search stops.
+     */
+    private final long simulationLimit;
+    /**
+     * Whether the workers should stop at their next iteration.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Create the control of a search without a simulation limit.
+     */
+    SearchControl() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * Create the control of a search.
+     *
+     * @param simulationLimit the number of simulations after which the search stops. The last
+     * expansion of every worker can exceed it by the number of legal moves.
+     */
+    SearchControl(long simulationLimit) {
+        this.simulationLimit = simulationLimit;
+    }
+
+    /**
+     * Ask all workers to stop at their next iteration.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return whether the search has been asked to stop or has reached its simulation limit.
+     */
+    boolean isStopped() {
+        return stopped || simulationLimit != Long.MAX_VALUE && getSimulations() >= simulationLimit;
+    }
+
+    /**
+     * @param count the number of simulations a worker has just done.
+     */
+    void addSimulations(int count) {
+        simulations.add(count);
+    }
+
+    /**
+     * @return the number of simulations done by all workers so far.
+     */
+    long getSimulations() {
+        return simulations.sum();
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.developersam.game.ten;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The JDK Flight Recorder event of one searched tree. Its duration is the duration of the search.
+ */
+@Name("com.developersam.game.ten.Search")
+@Label("MCTS Search")
+@Category("TEN")
+@Description("One search of an MCTS tree")
+final class SearchEvent extends Event {
+
+    @Label("Simulations")
+    long simulations;
+
+    @Label("Simulations per Second")
+    double simulationsPerSecond;
+
+    @Label("Threads")
+    int threads;
+
+    @Label("Nodes Allocated")
+    int nodesAllocated;
+
+    @Label("Tree Memory")
+    @DataAmount
+    long treeBytes;
+
+    @Label("Max Depth")
+    int maxDepth;
+
+    @Label("Average Depth")
+    double averageDepth;
+
+    @Label("Selection Time")
+    @Timespan
+    long selectionTime;
+
+    @Label("Expansion Time")
+    @Timespan
+    long expansionTime;
+
+    @Label("Playout Time")
+    @Timespan
+    long playoutTime;
+
+    @Label("Backpropagation Time")
+    @Timespan
+    long backpropagationTime;
+
+    @Label("Root Visits")
+    @Description("The visits of every visited root move as a,b:visits")
+    String rootVisits;
+
+    /**
+     * Copy the metrics into the event.
+     *
+     * @param metrics the metrics.
+     */
+    void set(SearchMetrics metrics) {
+        simulations = metrics.getSimulations();
+        simulationsPerSecond = metrics.getSimulationsPerSecond();
+        threads = metrics.getThreads();
+        nodesAllocated = metrics.getNodesAllocated();
+        treeBytes = (long) metrics.getNodesAllocated() * NodePool.BYTES_PER_NODE;
+        maxDepth = metrics.getMaxDepth();
+        averageDepth = metrics.getAverageDepth();
+        selectionTime = metrics.getSelectionNanos();
+        expansionTime = metrics.getExpansionNanos();
+        playoutTime = metrics.getPlayoutNanos();
+        backpropagationTime = metrics.getBackpropagationNanos();
+        rootVisits = metrics.formatRootVisits();
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.developersam.game.ten;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A listener of the metrics of every search, for monitoring.
+ * It is called on a search thread after the search, so it should return quickly.
+ */
+@FunctionalInterface
+public interface SearchListener {
+
+    /**
+     * Receive the metrics of a finished search.
+     *
+     * @param metrics the metrics of one searched tree.
+     */
+    void searchFinished(@NotNull SearchMetrics metrics);
+
+}
@@ -0,0 +1,183 @@
+package com.developersam.game.ten;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The metrics of one searched tree.
+ * <p>
+ * Times are summed over all workers of the tree, so with several threads they add up to more than
+ * the duration. Phase times are only measured when a {@link SearchListener} or the
+ * {@link SearchEvent} is enabled, and are 0 otherwise.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class SearchMetrics {
+
+    /**
+     * The number of simulations.
+     */
+    private final long simulations;
+    /**
+     * The wall clock duration of the search in nanoseconds.
+     */
+    private final long durationNanos;
+    /**
+     * The number of threads of the search.
+     */
+    private final int threads;
+    /**
+     * The number of nodes allocated by the search.
+     */
+    private final int nodesAllocated;
+    /**
+     * The maximum depth of a selected node.
+     */
+    private final int maxDepth;
+    /**
+     * The average depth of a selected node.
+     */
+    private final double averageDepth;
+    /**
+     * The time spent in selection, expansion without playouts, playouts and backpropagation.
+     */
+    private final long selectionNanos, expansionNanos, playoutNanos, backpropagationNanos;
+    /**
+     * The visits of every move of the root at index a * 9 + b.
+     */
+    private final long[] rootVisits;
+
+    /**
+     * Construct the metrics.
+     *
+     * @param simulations the number of simulations.
+     * @param durationNanos the duration in nanoseconds.
+     * @param threads the number of threads.
+     * @param nodesAllocated the number of nodes allocated.
+     * @param maxDepth the maximum depth of a selected node.
+     * @param averageDepth the average depth of a selected node.
+     * @param selectionNanos the time spent in selection.
+     * @param expansionNanos the time spent in expansion without playouts.
+     * @param playoutNanos the time spent in playouts.
+     * @param backpropagationNanos the time spent in backpropagation.
+     * @param rootVisits the visits of every move of the root.
+     */
+    SearchMetrics(long simulations, long durationNanos, int threads, int nodesAllocated,
+                  int maxDepth, double averageDepth, long selectionNanos, long expansionNanos,
+                  long playoutNanos, long backpropagationNanos, long[] rootVisits) {
+        this.simulations = simulations;
+        this.durationNanos = durationNanos;
+        this.threads = threads;
+        this.nodesAllocated = nodesAllocated;
+        this.maxDepth = maxDepth;
+        this.averageDepth = averageDepth;
+        this.selectionNanos = selectionNanos;
+        this.expansionNanos = expansionNanos;
+        this.playoutNanos = playoutNanos;
+        this.backpropagationNanos = backpropagationNanos;
+        this.rootVisits = rootVisits;
+    }
+
+    /**
+     * @return the number of simulations.
+     */
+    public long getSimulations() {
+        return simulations;
+    }
+
+    /**
+     * @return the wall clock duration of the search in nanoseconds.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return the number of simulations per second of wall clock time.
+     */
+    public double getSimulationsPerSecond() {
+        return durationNanos == 0 ? 0 : simulations * 1e9 / durationNanos;
+    }
+
+    /**
+     * @return the number of threads of the search.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the number of nodes allocated by the search.
+     */
+    public int getNodesAllocated() {
+        return nodesAllocated;
+    }
+
+    /**
+     * @return the maximum depth of a selected node, where the root has depth 0.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the average depth of a selected node.
+     */
+    public double getAverageDepth() {
+        return averageDepth;
+    }
+
+    /**
+     * @return the time spent in selection in nanoseconds.
+     */
+    public long getSelectionNanos() {
+        return selectionNanos;
+    }
+
+    /**
+     * @return the time spent in expansion, without its playouts, in nanoseconds.
+     */
+    public long getExpansionNanos() {
+        return expansionNanos;
+    }
+
+    /**
+     * @return the time spent in random playouts in nanoseconds.
+     */
+    public long getPlayoutNanos() {
+        return playoutNanos;
+    }
+
+    /**
+     * @return the time spent in backpropagation in nanoseconds.
+     */
+    public long getBackpropagationNanos() {
+        return backpropagationNanos;
+    }
+
+    /**
+     * @return the visits of every move of the root at index a * 9 + b, 0 for illegal moves.
+     */
+    @NotNull
+    public long[] getRootVisits() {
+        return rootVisits.clone();
+    }
+
+    /**
+     * @return the root visits of the visited moves as "a,b:visits" separated by spaces.
+     */
+    @NotNull
+    String formatRootVisits() {
+        StringBuilder builder = new StringBuilder();
+        for (int move = 0; move < rootVisits.length; move++) {
+            if (rootVisits[move] == 0) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(move / 9).append(',').append(move % 9).append(':')
+                    .append(rootVisits[move]);
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,502 @@
+package com.developersam.game.ten;
+
+import com.developersam.game.ten.MCTS.Decision;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The offline tool that plays games of the AI against itself and records every move.
+ * <p>
+ * Games are played concurrently, one per thread, with single-threaded searches that keep their
+ * trees between moves. A finished game is appended to the record file as one block: the length
+ * of the block, the index of the game, the winner and the number of moves, followed by a record
+ * of every move with the encoded board before the move ({@link BinaryCodec}), the move as
+ * a * 9 + b, and the visits of the moves of the root, stored as the number of visited moves
+ * followed by each move and its visits. Blocks are gathered in a buffer that is written and
+ * synced at a fixed interval.
+ * <p>
+ * The seed of every game is derived from its index, so a file can be resumed after an
+ * interruption: an incomplete last block is cut off, and only the games without a block are
+ * played.
+ * <p>
+ * Usage: {@code SelfPlay <output file> [games = 1000] [time limit per move in ms = 100]
+ * [simulations per move = 0 for none] [concurrent games = processors]}
+ */
+final class SelfPlay implements AutoCloseable {
+
+    /**
+     * The magic number at the start of every record file, "TENS".
+     */
+    private static final int MAGIC = 0x54454E53;
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+    /**
+     * The number of bytes of the header.
+     */
+    private static final int HEADER_BYTES = 8;
+    /**
+     * The number of bytes of the head of a block: the length, the game, the winner and the
+     * number of moves.
+     */
+    private static final int BLOCK_HEAD_BYTES = 10;
+    /**
+     * The maximum number of bytes of a block, for a game that fills the board with every move
+     * of the root visited.
+     */
+    static final int MAX_BLOCK_BYTES =
+            BLOCK_HEAD_BYTES + 81 * (BinaryCodec.BOARD_BYTES + 2 + 81 * 5);
+    /**
+     * The number of bytes of the write buffer.
+     */
+    private static final int BUFFER_BYTES = 1 << 20;
+    /**
+     * The interval between two syncs of the file in milliseconds.
+     */
+    private static final long FLUSH_INTERVAL = 5000;
+
+    /**
+     * The record file, positioned at its end.
+     */
+    private final FileChannel channel;
+    /**
+     * The search configuration of every move, without a seed.
+     */
+    private final SearchConfig config;
+    /**
+     * The master seed, from which the seed of every game is derived.
+     */
+    private final long seed;
+    /**
+     * The blocks not yet written to the file, guarded by this.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    /**
+     * The indices of the games in the file, guarded by this.
+     */
+    private final BitSet recordedGames = new BitSet();
+    /**
+     * The time of the last sync in milliseconds, guarded by this.
+     */
+    private long lastFlush = System.currentTimeMillis();
+    /**
+     * Whether the file is closed, guarded by this.
+     */
+    private boolean closed;
+
+    /**
+     * Open a record file, or create it if it does not exist.
+     *
+     * @param path the path of the file.
+     * @param config the search configuration of every move. The seed is ignored.
+     * @param seed the master seed.
+     * @throws IOException if the file cannot be opened or is not a record file.
+     */
+    SelfPlay(@NotNull Path path, @NotNull SearchConfig config, long seed) throws IOException {
+        this.config = config;
+        this.seed = seed;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            recover(path);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Check the header, collect the recorded games and cut off an incomplete last block, or
+     * write the header of an empty file.
+     *
+     * @param path the path of the file, for error messages.
+     * @throws IOException if the file cannot be read or is not a record file.
+     */
+    private void recover(Path path) throws IOException {
+        long size = channel.size();
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES);
+        if (size == 0) {
+            head.putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(head, 0);
+            channel.position(HEADER_BYTES);
+            return;
+        }
+        if (!readFully(head, 0) || head.getInt(0) != MAGIC || head.getInt(4) != VERSION) {
+            throw new IOException("Not a self-play record file: " + path);
+        }
+        long position = HEADER_BYTES;
+        while (true) {
+            head.clear();
+            if (!readFully(head, position)) {
+                break;
+            }
+            int length = head.getInt(0), game = head.getInt(4);
+            if (length < BLOCK_HEAD_BYTES || length > MAX_BLOCK_BYTES || game < 0
+                    || size - position < length) {
+                break;
+            }
+            recordedGames.set(game);
+            position += length;
+        }
+        // Whatever follows the last complete block was cut short by an interruption.
+        channel.truncate(position);
+        channel.position(position);
+    }
+
+    /**
+     * @param game the index of a game.
+     * @return the seed of the game.
+     */
+    private long gameSeed(int game) {
+        return seed + game * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Play the games that are not in the file yet, and report the progress periodically.
+     *
+     * @param games the number of games the file should have.
+     * @param concurrency the number of games played at the same time.
+     * @param reportInterval the interval between two progress reports in milliseconds.
+     * @return the number of games played.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    int run(int games, int concurrency, long reportInterval) throws InterruptedException {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("There must be at least one game at a time!");
+        }
+        ExecutorService players = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "ten-self-play");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int initialGames = recordedGameCount();
+        int missing = 0;
+        synchronized (this) {
+            for (int game = recordedGames.nextClearBit(0); game < games;
+                 game = recordedGames.nextClearBit(game + 1)) {
+                int index = game;
+                players.execute(() -> append(playGame(index)));
+                missing++;
+            }
+        }
+        players.shutdown();
+        long start = System.currentTimeMillis();
+        while (!players.awaitTermination(reportInterval, TimeUnit.MILLISECONDS)) {
+            report(recordedGameCount() - initialGames, missing, start);
+        }
+        report(recordedGameCount() - initialGames, missing, start);
+        flush();
+        return recordedGameCount() - initialGames;
+    }
+
+    /**
+     * @return the number of games in the file.
+     */
+    synchronized int recordedGameCount() {
+        return recordedGames.cardinality();
+    }
+
+    /**
+     * Print the progress.
+     *
+     * @param played the number of games played.
+     * @param total the number of games to play.
+     * @param start the start time in milliseconds.
+     */
+    private static void report(int played, int total, long start) {
+        long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+        System.out.printf("Played %d/%d games, %.0f games/hour%n",
+                played, total, played * 3_600_000.0 / elapsed);
+    }
+
+    /**
+     * Play one game and encode its block.
+     *
+     * @param game the index of the game.
+     * @return the block, ready to be read.
+     */
+    @NotNull
+    ByteBuffer playGame(int game) {
+        long gameSeed = gameSeed(game);
+        ByteBuffer block = ByteBuffer.allocate(MAX_BLOCK_BYTES);
+        block.position(BLOCK_HEAD_BYTES);
+        Board board = new Board(new BoardData(new int[81], -1, 1));
+        int moves = 0;
+        try (GameSession black = new GameSession(config.withSeed(gameSeed),
+                GameSession.DEFAULT_IDLE_TIMEOUT);
+             GameSession white = new GameSession(config.withSeed(~gameSeed),
+                     GameSession.DEFAULT_IDLE_TIMEOUT)) {
+            while (board.getGameStatus() == 0) {
+                GameSession session = board.getPlayerIdentity() == 1 ? black : white;
+                Decision decision = session.selectMove(board);
+                BinaryCodec.encode(board, block);
+                block.put((byte) (decision.move.a * 9 + decision.move.b));
+                int countPosition = block.position();
+                block.put((byte) 0);
+                int visited = 0;
+                for (int move = 0; move < 81; move++) {
+                    long visits = decision.rootVisits[move];
+                    if (visits > 0) {
+                        block.put((byte) move).putInt((int) Math.min(visits, Integer.MAX_VALUE));
+                        visited++;
+                    }
+                }
+                block.put(countPosition, (byte) visited);
+                board = board.makeMoveWithoutCheck(decision.move);
+                moves++;
+            }
+        }
+        block.putInt(0, block.position()).putInt(4, game)
+                .put(8, (byte) board.getGameStatus()).put(9, (byte) moves);
+        block.flip();
+        return block;
+    }
+
+    /**
+     * Add a block to the buffer, and write the buffer out if it is full or the flush interval
+     * has passed. Blocks added after the file is closed are dropped, and their games are played
+     * again when the file is resumed.
+     *
+     * @param block the block of a game.
+     */
+    synchronized void append(@NotNull ByteBuffer block) {
+        if (closed) {
+            return;
+        }
+        try {
+            if (buffer.remaining() < block.remaining()) {
+                writeBuffer();
+            }
+            recordedGames.set(block.getInt(4));
+            buffer.put(block);
+            if (System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write the self-play records!", e);
+        }
+    }
+
+    /**
+     * Write the buffer out and sync the file.
+     */
+    synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            writeBuffer();
+            channel.force(false);
+            lastFlush = System.currentTimeMillis();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write the self-play records!", e);
+        }
+    }
+
+    /**
+     * Write the buffer out to the end of the file.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Flush and close the file.
+     */
+    @Override
+    public synchronized void close() {
+        flush();
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot close the self-play records!", e);
+        }
+    }
+
+    /**
+     * @param target the buffer to fill.
+     * @param position the position in the file.
+     * @return whether the buffer was filled before the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private boolean readFully(ByteBuffer target, long position) throws IOException {
+        return readFully(channel, target, position);
+    }
+
+    /**
+     * @param source the file.
+     * @param target the buffer to fill.
+     * @param position the position in the file.
+     * @return whether the buffer was filled before the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private static boolean readFully(FileChannel source, ByteBuffer target, long position)
+            throws IOException {
+        while (target.hasRemaining()) {
+            int read = source.read(target, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    /**
+     * @param source the buffer to write.
+     * @param position the position in the file.
+     * @throws IOException if the file cannot be written.
+     */
+    private void writeFully(ByteBuffer source, long position) throws IOException {
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+    }
+
+    /**
+     * Read every move of the complete games of a record file, in file order.
+     *
+     * @param path the path of the file.
+     * @param consumer the consumer of the records.
+     * @throws IOException if the file cannot be read or is not a record file.
+     */
+    static void read(@NotNull Path path, @NotNull Consumer<Record> consumer) throws IOException {
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES);
+            if (!readFully(source, head, 0) || head.getInt(0) != MAGIC
+                    || head.getInt(4) != VERSION) {
+                throw new IOException("Not a self-play record file: " + path);
+            }
+            ByteBuffer block = ByteBuffer.allocate(MAX_BLOCK_BYTES);
+            long position = HEADER_BYTES;
+            while (true) {
+                block.clear().limit(4);
+                if (!readFully(source, block, position)) {
+                    return;
+                }
+                int length = block.getInt(0);
+                if (length < BLOCK_HEAD_BYTES || length > MAX_BLOCK_BYTES) {
+                    return;
+                }
+                block.limit(length);
+                if (!readFully(source, block, position + 4)) {
+                    return;
+                }
+                block.position(4);
+                int game = block.getInt();
+                int winner = block.get();
+                int moves = block.get();
+                for (int i = 0; i < moves; i++) {
+                    Board board = BinaryCodec.decodeBoard(block);
+                    int move = block.get();
+                    int[] rootVisits = new int[81];
+                    for (int visited = block.get(); visited > 0; visited--) {
+                        int visitedMove = block.get();
+                        rootVisits[visitedMove] = block.getInt();
+                    }
+                    consumer.accept(new Record(game, board, move, rootVisits, winner));
+                }
+                position += length;
+            }
+        }
+    }
+
+    /**
+     * Play games into a record file.
+     *
+     * @param args the output file, the number of games, the time limit per move, the number of
+     * simulations per move and the number of concurrent games.
+     * @throws IOException if the file cannot be opened.
+     * @throws InterruptedException if the main thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args.length > 5) {
+            System.err.println("Usage: SelfPlay <output file> [games] [time limit] "
+                    + "[simulations] [concurrent games]");
+            System.exit(1);
+        }
+        Path output = Paths.get(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long timeLimit = args.length > 2 ? Long.parseLong(args[2]) : 100;
+        long simulations = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        int concurrency = args.length > 4
+                ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        SearchConfig config = SearchConfig.DEFAULT.withTimeLimit(timeLimit)
+                .withThreads(1).withRootParallelism(1);
+        if (simulations > 0) {
+            config = config.withSimulationLimit(simulations);
+        }
+        SelfPlay selfPlay = new SelfPlay(output, config, 0);
+        System.out.println("Games already recorded: " + selfPlay.recordedGameCount());
+        // Keep the finished games when the process is stopped, so that the file can be resumed.
+        Thread flusher = new Thread(selfPlay::close);
+        Runtime.getRuntime().addShutdownHook(flusher);
+        selfPlay.run(games, concurrency, 10_000);
+        selfPlay.close();
+        Runtime.getRuntime().removeShutdownHook(flusher);
+        System.out.println("Self-play records written to " + output);
+    }
+
+    /**
+     * The record of one move.
+     */
+    static final class Record {
+
+        /**
+         * The index of the game.
+         */
+        final int game;
+        /**
+         * The board before the move.
+         */
+        final Board board;
+        /**
+         * The move as a * 9 + b.
+         */
+        final int move;
+        /**
+         * The visits of every move of the root at index a * 9 + b.
+         */
+        final int[] rootVisits;
+        /**
+         * The winner of the game, 1 or -1.
+         */
+        final int winner;
+
+        /**
+         * @param game the index of the game.
+         * @param board the board before the move.
+         * @param move the move as a * 9 + b.
+         * @param rootVisits the visits of every move of the root.
+         * @param winner the winner of the game.
+         */
+        private Record(int game, Board board, int move, int[] rootVisits, int winner) {
+            this.game = game;
+            this.board = board;
+            this.move = move;
+            this.rootVisits = rootVisits;
+            this.winner = winner;
+        }
+
+    }
+
+}
@@ -3,21 +3,21 @@ package com.developersam.game.ten;
 /**
  * The server response data class.
  */
-@SuppressWarnings({"FieldCanBeLocal", "WeakerAccess"})
+@SuppressWarnings("WeakerAccess")
 public final class ServerResponse {
 
     /**
      * Specifies the move of the AI, which can be a place holder value.
      */
-    private final int[] move;
+    final int[] move;
     /**
      * The winning probability of the decided move.
      */
-    private final int winningPercentage;
+    final int winningPercentage;
     /**
      * The counter that records the number of simulation done.
      */
-    private final int simulationCounter;
+    final int simulationCounter;
 
     /**
      * Construct a response.
@@ -28,4 +28,18 @@ public final class ServerResponse {
         this.simulationCounter = simulationCounter;
     }
 
+    /**
+     * Construct a response from the coordinates of the move.
+     *
+     * @param a the big square of the move.
+     * @param b the small square of the move.
+     * @param winningPercentage the winning probability of the decided move.
+     * @param simulationCounter the number of simulations done.
+     */
+    ServerResponse(int a, int b, int winningPercentage, int simulationCounter) {
+        this.move = new int[]{a, b};
+        this.winningPercentage = winningPercentage;
+        this.simulationCounter = simulationCounter;
+    }
+
 }
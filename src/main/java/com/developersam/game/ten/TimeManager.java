@@ -0,0 +1,176 @@
+package com.developersam.game.ten;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time control of one search.
+ * <p>
+ * Workers read the clock with {@link System#nanoTime()} only once every {@link #CHECK_INTERVAL}
+ * simulations. A search stops at its first check when the root has a single legal move, so a
+ * forced move still gets a few simulations for its winning probability. With early termination,
+ * a search also stops when the most visited move, which is also the move with the best winning
+ * probability, leads by more visits than the root can still get in the remaining time.
+ * <p>
+ * The time limit of a move under a game clock is given by {@link #clockTimeLimit}.
+ */
+final class TimeManager {
+
+    /**
+     * The number of simulations of a worker between two reads of the clock.
+     */
+    static final int CHECK_INTERVAL = 32;
+    /**
+     * The minimum time between two checks for early termination in nanoseconds.
+     */
+    private static final long EARLY_TERMINATION_INTERVAL = TimeUnit.MILLISECONDS.toNanos(5);
+    /**
+     * The part of the time limit that must have passed before the first check for early
+     * termination, so that the visit rate of the root is measured reliably.
+     */
+    private static final int MIN_ELAPSED_FRACTION = 10;
+    /**
+     * The time in milliseconds kept on the clock for the overhead around the search.
+     */
+    private static final long CLOCK_MARGIN = 50;
+    /**
+     * The fewest and most moves of the AI that the remaining clock time is planned for.
+     */
+    private static final int MIN_MOVES_TO_GO = 5, MAX_MOVES_TO_GO = 20;
+    /**
+     * The root of every tree.
+     */
+    private static final int ROOT = 0;
+
+    /**
+     * The time of the start of the search in nanoseconds.
+     */
+    private final long startNanos;
+    /**
+     * The time limit in nanoseconds, or 0 for a forced move.
+     */
+    private final long limitNanos;
+    /**
+     * Whether the search stops when the leading move cannot be overtaken.
+     */
+    private final boolean earlyTermination;
+    /**
+     * The visits of the root at the start of the search.
+     */
+    private final long startVisits;
+    /**
+     * The time of the next check for early termination in nanoseconds.
+     */
+    private volatile long nextEarlyTerminationCheck;
+
+    /**
+     * Start the time control of a search.
+     *
+     * @param pool the tree with an initialized root.
+     * @param rootBoard the board of the root.
+     * @param timeLimit the time limit in milliseconds.
+     * @param earlyTermination whether the search stops when the leading move cannot be
+     * overtaken.
+     */
+    TimeManager(@NotNull NodePool pool, @NotNull Board rootBoard, long timeLimit,
+                boolean earlyTermination) {
+        startNanos = System.nanoTime();
+        limitNanos = hasSingleLegalMove(rootBoard)
+                ? 0 : TimeUnit.MILLISECONDS.toNanos(timeLimit);
+        this.earlyTermination = earlyTermination;
+        startVisits = pool.visits(ROOT);
+        nextEarlyTerminationCheck = startNanos + limitNanos / MIN_ELAPSED_FRACTION;
+    }
+
+    /**
+     * @param board a board.
+     * @return whether the board has exactly one legal move.
+     */
+    private static boolean hasSingleLegalMove(Board board) {
+        PlayoutBoard playoutBoard = new PlayoutBoard();
+        board.copyInto(playoutBoard);
+        return playoutBoard.countLegalMoves() == 1;
+    }
+
+    /**
+     * Plan the time of one move of the AI under a game clock. The remaining time is shared
+     * among the moves the AI is expected to still make, which is estimated from the number of
+     * empty tiles, and most of the increment is added on top.
+     *
+     * @param board the board of the move.
+     * @param remainingTime the time left on the clock of the AI in milliseconds.
+     * @param increment the time added to the clock after every move in milliseconds.
+     * @return the time limit of the move in milliseconds.
+     */
+    static long clockTimeLimit(@NotNull Board board, long remainingTime, long increment) {
+        PlayoutBoard playoutBoard = new PlayoutBoard();
+        board.copyInto(playoutBoard);
+        int emptyTiles = playoutBoard.countEmptyTiles();
+        // Games rarely fill the board, and the AI makes every other move.
+        int movesToGo = Math.max(MIN_MOVES_TO_GO, Math.min(MAX_MOVES_TO_GO, emptyTiles / 4));
+        long usable = Math.max(remainingTime - CLOCK_MARGIN, 0);
+        long timeLimit = usable / movesToGo + increment * 3 / 4;
+        return Math.min(timeLimit, usable / 2);
+    }
+
+    /**
+     * @param now the current time in nanoseconds.
+     * @return whether the time limit has been reached.
+     */
+    boolean isExpired(long now) {
+        return now - startNanos >= limitNanos;
+    }
+
+    /**
+     * Check whether the most visited move of the root can no longer be overtaken, judged by the
+     * visit rate of the root so far. Only one worker runs the check at a time in practice, and a
+     * check runs at most every few milliseconds.
+     *
+     * @param pool the tree.
+     * @param now the current time in nanoseconds.
+     * @return whether the search can stop early.
+     */
+    boolean canStopEarly(@NotNull NodePool pool, long now) {
+        long nextCheck = nextEarlyTerminationCheck;
+        if (!earlyTermination || now - nextCheck < 0) {
+            return false;
+        }
+        nextEarlyTerminationCheck = now + EARLY_TERMINATION_INTERVAL;
+        long elapsed = now - startNanos;
+        int firstEdge = pool.firstEdge(ROOT);
+        if (elapsed <= 0 || firstEdge < 0) {
+            return false;
+        }
+        double remainingVisits = (double) (pool.visits(ROOT) - startVisits)
+                * (limitNanos - elapsed) / elapsed;
+        long mostVisits = 0, secondMostVisits = 0;
+        int mostVisited = NodePool.NONE, bestWinning = NodePool.NONE;
+        double bestWinningProbability = -1;
+        int end = firstEdge + pool.edgeCount(ROOT);
+        for (int edge = firstEdge; edge < end; edge++) {
+            int child = pool.edgeTarget(edge);
+            if (child < 0) {
+                continue;
+            }
+            long visits = pool.visits(child);
+            if (visits > mostVisits) {
+                secondMostVisits = mostVisits;
+                mostVisits = visits;
+                mostVisited = edge;
+            } else if (visits > secondMostVisits) {
+                secondMostVisits = visits;
+            }
+            if (visits > 0) {
+                double winningProbability = ((double) pool.wins(child)) / visits;
+                if (winningProbability > bestWinningProbability) {
+                    bestWinningProbability = winningProbability;
+                    bestWinning = edge;
+                }
+            }
+        }
+        return mostVisited != NodePool.NONE && mostVisited == bestWinning
+                && mostVisits - secondMostVisits > remainingVisits;
+    }
+
+}
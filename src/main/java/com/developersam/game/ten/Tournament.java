@@ -0,0 +1,361 @@
+package com.developersam.game.ten;
+
+import com.developersam.game.ten.MCTS.Decision;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The offline tool that plays a match between two search configurations.
+ * <p>
+ * Games are played in parallel, and the configurations swap colors every game, so that each one
+ * plays black in half of the games. Every side keeps its tree between its moves. The seeds of a
+ * game are derived from its index, so with simulation limits and one thread per search, a match
+ * gives the same result on every machine, and the reported speeds measure only the machine.
+ * <p>
+ * Usage: {@code Tournament <games> <first config> <second config> [concurrent games]}, where a
+ * config is a comma separated list of settings like {@code time=100,threads=1,exploration=2}.
+ * The settings are time, sims, threads, exploration, rave, progressive, solver and tt. With
+ * sims, the time limit defaults to no limit, which is the fixed-simulation mode.
+ */
+final class Tournament {
+
+    /**
+     * The z score of a two-sided 95% confidence interval.
+     */
+    private static final double Z_95 = 1.959964;
+
+    /**
+     * The configurations of the two sides.
+     */
+    private final SearchConfig first, second;
+    /**
+     * The master seed, from which the seeds of every game are derived.
+     */
+    private final long seed;
+
+    /**
+     * @param first the configuration of the first side.
+     * @param second the configuration of the second side.
+     * @param seed the master seed.
+     */
+    Tournament(@NotNull SearchConfig first, @NotNull SearchConfig second, long seed) {
+        this.first = first;
+        this.second = second;
+        this.seed = seed;
+    }
+
+    /**
+     * Play a match.
+     *
+     * @param games the number of games.
+     * @param concurrency the number of games played at the same time.
+     * @return the result.
+     */
+    @NotNull
+    Result run(int games, int concurrency) {
+        if (games < 1) {
+            throw new IllegalArgumentException("There must be at least one game!");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("There must be at least one game at a time!");
+        }
+        ExecutorService players = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "ten-tournament");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Result>> futures = new ArrayList<>(games);
+            for (int game = 0; game < games; game++) {
+                int index = game;
+                futures.add(players.submit(() -> playGame(index)));
+            }
+            Result result = new Result();
+            for (Future<Result> future : futures) {
+                result.add(future.get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for games!", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A game failed!", e.getCause());
+        } finally {
+            players.shutdownNow();
+        }
+    }
+
+    /**
+     * Play one game, where the first side plays black in the even games.
+     *
+     * @param game the index of the game.
+     * @return the result of the game.
+     */
+    private Result playGame(int game) {
+        long gameSeed = seed + game * 0x9E3779B97F4A7C15L;
+        boolean firstIsBlack = (game & 1) == 0;
+        Result result = new Result();
+        try (GameSession firstSession = new GameSession(first.withSeed(gameSeed),
+                GameSession.DEFAULT_IDLE_TIMEOUT);
+             GameSession secondSession = new GameSession(second.withSeed(~gameSeed),
+                     GameSession.DEFAULT_IDLE_TIMEOUT)) {
+            Board board = new Board(new BoardData(new int[81], -1, 1));
+            while (board.getGameStatus() == 0) {
+                boolean firstToMove = (board.getPlayerIdentity() == 1) == firstIsBlack;
+                long start = System.nanoTime();
+                Decision decision = (firstToMove ? firstSession : secondSession)
+                        .selectMove(board);
+                result.sides[firstToMove ? 0 : 1].addMove(
+                        System.nanoTime() - start, decision.simulationCounter);
+                board = board.makeMoveWithoutCheck(decision.move);
+            }
+            boolean blackWins = board.getGameStatus() == 1;
+            if (blackWins == firstIsBlack) {
+                result.firstWins++;
+                if (firstIsBlack) {
+                    result.firstBlackWins++;
+                }
+            }
+            if (firstIsBlack) {
+                result.firstBlackGames++;
+            }
+            result.games++;
+        }
+        return result;
+    }
+
+    /**
+     * Parse a configuration from a comma separated list of settings.
+     *
+     * @param spec the settings, like {@code time=100,threads=1}.
+     * @return the configuration.
+     */
+    @NotNull
+    static SearchConfig parseConfig(@NotNull String spec) {
+        SearchConfig config = SearchConfig.DEFAULT;
+        boolean timed = false;
+        for (String setting : spec.split(",")) {
+            if (setting.isEmpty()) {
+                continue;
+            }
+            int separator = setting.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Bad setting: " + setting + "!");
+            }
+            String key = setting.substring(0, separator), value = setting.substring(separator + 1);
+            switch (key) {
+                case "time":
+                    config = config.withTimeLimit(Long.parseLong(value));
+                    timed = true;
+                    break;
+                case "sims":
+                    config = config.withSimulationLimit(Long.parseLong(value));
+                    if (!timed) {
+                        config = config.withTimeLimit(Long.MAX_VALUE);
+                    }
+                    break;
+                case "threads":
+                    config = config.withThreads(Integer.parseInt(value));
+                    break;
+                case "exploration":
+                    config = config.withExploration(Double.parseDouble(value));
+                    break;
+                case "rave":
+                    config = config.withRaveEquivalence(Integer.parseInt(value));
+                    break;
+                case "progressive":
+                    config = config.withProgressiveExpansion(Boolean.parseBoolean(value));
+                    break;
+                case "solver":
+                    config = config.withSolverThreshold(Integer.parseInt(value));
+                    break;
+                case "tt":
+                    config = config.withTranspositionTableSize(Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting: " + key + "!");
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Play a match and print the report.
+     *
+     * @param args the number of games, the two configurations and the number of concurrent
+     * games.
+     */
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println(
+                    "Usage: Tournament <games> <first config> <second config> [concurrent games]");
+            System.exit(1);
+        }
+        int games = Integer.parseInt(args[0]);
+        SearchConfig first = parseConfig(args[1]), second = parseConfig(args[2]);
+        // By default, every search gets its own processors, so that speeds stay comparable.
+        int threads = Math.max(first.getThreads(), second.getThreads());
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3])
+                : Math.max(Runtime.getRuntime().availableProcessors() / threads, 1);
+        Result result = new Tournament(first, second, 0).run(games, concurrency);
+        System.out.println("First: " + args[1]);
+        System.out.println("Second: " + args[2]);
+        System.out.print(result.report());
+    }
+
+    /**
+     * The speed of one side.
+     */
+    static final class Side {
+
+        /**
+         * The number of moves.
+         */
+        long moves;
+        /**
+         * The number of simulations.
+         */
+        long simulations;
+        /**
+         * The time spent on moves in nanoseconds.
+         */
+        long nanos;
+
+        /**
+         * @param moveNanos the time of a move in nanoseconds.
+         * @param moveSimulations the number of simulations of the move.
+         */
+        private void addMove(long moveNanos, long moveSimulations) {
+            moves++;
+            nanos += moveNanos;
+            simulations += moveSimulations;
+        }
+
+        /**
+         * @return the number of simulations per second.
+         */
+        double getSimulationsPerSecond() {
+            return nanos == 0 ? 0 : simulations * 1e9 / nanos;
+        }
+
+        /**
+         * @return the average time of a move in milliseconds.
+         */
+        double getTimePerMove() {
+            return moves == 0 ? 0 : nanos / 1e6 / moves;
+        }
+
+    }
+
+    /**
+     * The result of a match, from the point of view of the first side.
+     */
+    static final class Result {
+
+        /**
+         * The number of games.
+         */
+        int games;
+        /**
+         * The number of games won by the first side.
+         */
+        int firstWins;
+        /**
+         * The number of games in which the first side played black.
+         */
+        int firstBlackGames;
+        /**
+         * The number of games won by the first side as black.
+         */
+        int firstBlackWins;
+        /**
+         * The speeds of the first and the second side.
+         */
+        final Side[] sides = {new Side(), new Side()};
+
+        /**
+         * @param other the result to add to this one.
+         */
+        private void add(Result other) {
+            games += other.games;
+            firstWins += other.firstWins;
+            firstBlackGames += other.firstBlackGames;
+            firstBlackWins += other.firstBlackWins;
+            for (int i = 0; i < 2; i++) {
+                sides[i].moves += other.sides[i].moves;
+                sides[i].simulations += other.sides[i].simulations;
+                sides[i].nanos += other.sides[i].nanos;
+            }
+        }
+
+        /**
+         * @return the share of the games won by the first side.
+         */
+        double getWinRate() {
+            return games == 0 ? 0 : ((double) firstWins) / games;
+        }
+
+        /**
+         * Compute the Wilson score interval of the win rate, which stays within [0, 1] and is
+         * reliable for small matches and lopsided results.
+         *
+         * @return the lower and upper bound of the 95% confidence interval of the win rate.
+         */
+        double[] getWinRateInterval() {
+            if (games == 0) {
+                return new double[]{0, 1};
+            }
+            double p = getWinRate(), z2 = Z_95 * Z_95;
+            double center = (p + z2 / (2 * games)) / (1 + z2 / games);
+            double margin = Z_95 / (1 + z2 / games)
+                    * Math.sqrt(p * (1 - p) / games + z2 / (4.0 * games * games));
+            return new double[]{Math.max(center - margin, 0), Math.min(center + margin, 1)};
+        }
+
+        /**
+         * @param winRate a win rate.
+         * @return the Elo difference that gives the win rate, which is infinite for a win rate
+         * of 0 or 1.
+         */
+        static double eloDifference(double winRate) {
+            return -400 * Math.log10(1 / winRate - 1);
+        }
+
+        /**
+         * @return the report of the match.
+         */
+        @NotNull
+        String report() {
+            double[] interval = getWinRateInterval();
+            StringBuilder report = new StringBuilder();
+            report.append(String.format(Locale.ROOT,
+                    "Games: %d, first wins %d (%d/%d as black, %d/%d as white)%n",
+                    games, firstWins, firstBlackWins, firstBlackGames,
+                    firstWins - firstBlackWins, games - firstBlackGames));
+            report.append(String.format(Locale.ROOT,
+                    "Win rate: %.1f%% (95%% CI %.1f%% to %.1f%%)%n",
+                    getWinRate() * 100, interval[0] * 100, interval[1] * 100));
+            report.append(String.format(Locale.ROOT,
+                    "Elo difference: %+.0f (95%% CI %+.0f to %+.0f)%n",
+                    eloDifference(getWinRate()), eloDifference(interval[0]),
+                    eloDifference(interval[1])));
+            String[] names = {"First", "Second"};
+            for (int i = 0; i < 2; i++) {
+                report.append(String.format(Locale.ROOT,
+                        "%s: %.0f simulations/s, %.1f ms/move over %d moves%n", names[i],
+                        sides[i].getSimulationsPerSecond(), sides[i].getTimePerMove(),
+                        sides[i].moves));
+            }
+            return report.toString();
+        }
+
+    }
+
+}
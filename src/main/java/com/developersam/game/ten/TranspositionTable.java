@@ -0,0 +1,128 @@
+package com.developersam.game.ten;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+import static com.developersam.game.ten.NodePool.NONE;
+
+/**
+ * A bounded, lock-free map from Zobrist hashes to the nodes of a {@link NodePool}.
+ * <p>
+ * Every entry is a pair of longs: the node index plus one, and the full hash xor that value. A
+ * reader accepts an entry only if the two halves xor back to its hash, so entries can be read and
+ * written without locks, an entry torn by a concurrent write is seen as a miss, and a position is
+ * never matched with the node of another position that only shares some bits of its hash. The
+ * table is split into buckets of 4 entries that share a cache line. When a bucket is full, the
+ * entry of the node with the fewest visits is replaced, which keeps the most valuable
+ * transpositions in a fixed amount of memory. A lost entry only means a transposition is not
+ * detected.
+ */
+final class TranspositionTable {
+
+    /**
+     * The number of bytes of one entry.
+     */
+    static final int BYTES_PER_ENTRY = 16;
+    /**
+     * The number of entries in a bucket.
+     */
+    private static final int WAYS = 4;
+    /**
+     * Atomic access to the entries.
+     */
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * The entries as pairs of (hash ^ (node + 1)) and (node + 1), where a node of 0 is empty.
+     */
+    private final long[] entries;
+    /**
+     * The mask of the bucket index.
+     */
+    private final int bucketMask;
+
+    /**
+     * Create an empty table.
+     *
+     * @param capacity the number of entries, rounded up to a power of two of at least one bucket.
+     */
+    TranspositionTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, WAYS) - 1) << 1;
+        entries = new long[2 * size];
+        bucketMask = size / WAYS - 1;
+    }
+
+    /**
+     * @return the number of entries.
+     */
+    int capacity() {
+        return entries.length / 2;
+    }
+
+    /**
+     * Remove all entries.
+     * Requires: no worker is using the table.
+     */
+    void clear() {
+        Arrays.fill(entries, 0);
+    }
+
+    /**
+     * @param hash the hash of a position.
+     * @return the index in the array of the first entry of the bucket of the position.
+     */
+    private int bucket(long hash) {
+        return ((int) hash & bucketMask) * WAYS * 2;
+    }
+
+    /**
+     * Find the node of a position.
+     *
+     * @param hash the hash of the position.
+     * @return the node, or {@link NodePool#NONE} if the position is not in the table.
+     */
+    int find(long hash) {
+        int start = bucket(hash);
+        for (int i = start; i < start + 2 * WAYS; i += 2) {
+            // Acquire pairs with the release in put, so the check and the node are seen written.
+            long node = (long) ENTRIES.getAcquire(entries, i + 1);
+            long check = (long) ENTRIES.getOpaque(entries, i);
+            if (node != 0 && (check ^ node) == hash) {
+                return (int) node - 1;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Record the node of a position, replacing the least visited node of the bucket if it is
+     * full. Requires: the node is initialized.
+     *
+     * @param hash the hash of the position.
+     * @param node the node.
+     * @param pool the pool of the node, used to compare visits.
+     */
+    void put(long hash, int node, NodePool pool) {
+        int start = bucket(hash);
+        int victim = start;
+        long fewestVisits = Long.MAX_VALUE;
+        for (int i = start; i < start + 2 * WAYS; i += 2) {
+            long entryNode = (long) ENTRIES.getOpaque(entries, i + 1);
+            long check = (long) ENTRIES.getOpaque(entries, i);
+            if (entryNode == 0 || (check ^ entryNode) == hash) {
+                victim = i;
+                break;
+            }
+            long visits = pool.visits((int) entryNode - 1);
+            if (visits < fewestVisits) {
+                fewestVisits = visits;
+                victim = i;
+            }
+        }
+        long value = node + 1;
+        ENTRIES.setOpaque(entries, victim, hash ^ value);
+        ENTRIES.setRelease(entries, victim + 1, value);
+    }
+
+}
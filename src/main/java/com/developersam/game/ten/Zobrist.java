@@ -0,0 +1,77 @@
+package com.developersam.game.ten;
+
+/**
+ * The Zobrist keys of board positions.
+ * The hash of a position is the XOR of the keys of all occupied tiles, the key of the big square
+ * to pick, and the white to move key when white is the current player. The keys come from a fixed
+ * seed, so hashes are stable across runs and can be stored in files.
+ */
+final class Zobrist {
+
+    /**
+     * The keys of black tiles at index a * 9 + b, followed by the keys of white tiles.
+     */
+    static final long[] TILES = new long[162];
+    /**
+     * The keys of the big square to pick at index bigSquareToPick + 1.
+     */
+    static final long[] BIG_SQUARE_TO_PICK = new long[10];
+    /**
+     * The key of white being the current player.
+     */
+    static final long WHITE_TO_MOVE;
+
+    static {
+        FastRandom random = new FastRandom(0x7E4_2018L);
+        for (int i = 0; i < TILES.length; i++) {
+            TILES[i] = random.nextLong();
+        }
+        for (int i = 0; i < BIG_SQUARE_TO_PICK.length; i++) {
+            BIG_SQUARE_TO_PICK[i] = random.nextLong();
+        }
+        WHITE_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Compute the hash of a position from scratch.
+     *
+     * @param tiles the tiles at index a * 9 + b, each 1, -1 or 0 (black, white, empty).
+     * @param bigSquareToPick the big square to pick, or -1 for everywhere.
+     * @param playerIdentity the current player.
+     * @return the hash.
+     */
+    static long hash(int[] tiles, int bigSquareToPick, int playerIdentity) {
+        long hash = BIG_SQUARE_TO_PICK[bigSquareToPick + 1];
+        if (playerIdentity != 1) {
+            hash ^= WHITE_TO_MOVE;
+        }
+        for (int i = 0; i < 81; i++) {
+            if (tiles[i] == 1) {
+                hash ^= TILES[i];
+            } else if (tiles[i] == -1) {
+                hash ^= TILES[81 + i];
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Compute the change of the hash after a move.
+     *
+     * @param tile the tile index a * 9 + b of the move.
+     * @param isBlack whether black makes the move.
+     * @param oldBigSquareToPick the big square to pick before the move.
+     * @param newBigSquareToPick the big square to pick after the move.
+     * @return the value to XOR into the hash.
+     */
+    static long moveDelta(int tile, boolean isBlack, int oldBigSquareToPick,
+                          int newBigSquareToPick) {
+        return TILES[isBlack ? tile : 81 + tile] ^ WHITE_TO_MOVE
+                ^ BIG_SQUARE_TO_PICK[oldBigSquareToPick + 1]
+                ^ BIG_SQUARE_TO_PICK[newBigSquareToPick + 1];
+    }
+
+}
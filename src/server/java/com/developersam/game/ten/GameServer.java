@@ -0,0 +1,337 @@
+package com.developersam.game.ten;
+
+import com.developersam.game.ten.BatchSearch.Budget;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A game server on the HTTP server of the JDK, speaking the {@link BinaryCodec} wire format.
+ * <p>
+ * A client posts an encoded board to {@value #MOVE_PATH} and gets an encoded server response.
+ * Requests are handled on virtual threads when the JDK has them, and on a cached pool of platform
+ * threads otherwise, so a slow client only ever blocks its own thread. The searches run on a
+ * {@link BatchSearch} with a fixed number of compute threads, which share their time round robin
+ * among the searches in progress.
+ * <p>
+ * Admission control bounds the number of searches in progress. A request that finds no free
+ * place is answered at once with 503, instead of waiting in a queue: every search in progress
+ * slows down all the others, so past the bound the latency of every request would grow with the
+ * load. Statistics are served as plain text at {@value #STATS_PATH}.
+ */
+final class GameServer implements AutoCloseable {
+
+    /**
+     * The path of the move requests.
+     */
+    static final String MOVE_PATH = "/move";
+    /**
+     * The path of the statistics.
+     */
+    static final String STATS_PATH = "/stats";
+    /**
+     * The default port.
+     */
+    private static final int DEFAULT_PORT = 8080;
+    /**
+     * The default time limit of a search in milliseconds, the same as
+     * {@link Board#respondToClient}.
+     */
+    private static final long DEFAULT_TIME_LIMIT = 1500;
+    /**
+     * The default number of searches in progress for every compute thread.
+     */
+    private static final int DEFAULT_SEARCHES_PER_THREAD = 4;
+    /**
+     * The length of a time slice of the compute threads in milliseconds.
+     */
+    private static final long SLICE = 20;
+
+    /**
+     * The HTTP server.
+     */
+    private final HttpServer http;
+    /**
+     * The threads that handle the requests.
+     */
+    private final ExecutorService requestThreads;
+    /**
+     * The compute threads.
+     */
+    private final BatchSearch search;
+    /**
+     * The free places for searches in progress.
+     */
+    private final Semaphore admission;
+    /**
+     * The maximum number of searches in progress.
+     */
+    private final int maxSearches;
+    /**
+     * The time limit of a search in milliseconds.
+     */
+    private final long timeLimit;
+    /**
+     * The number of moves answered.
+     */
+    private final AtomicLong served = new AtomicLong();
+    /**
+     * The number of requests shed by admission control.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+    /**
+     * The number of malformed requests.
+     */
+    private final AtomicLong malformed = new AtomicLong();
+
+    /**
+     * Create a server. It does not accept requests before {@link #start()}.
+     *
+     * @param address the address to bind, whose port may be 0 for any free port.
+     * @param computeThreads the number of compute threads.
+     * @param maxSearches the maximum number of searches in progress.
+     * @param timeLimit the time limit of a search in milliseconds.
+     * @throws IOException if the address cannot be bound.
+     */
+    GameServer(@NotNull InetSocketAddress address, int computeThreads, int maxSearches,
+               long timeLimit) throws IOException {
+        if (maxSearches < 1) {
+            throw new IllegalArgumentException("There must be room for at least one search!");
+        }
+        if (timeLimit < 0) {
+            throw new IllegalArgumentException("Time limit must be non-negative!");
+        }
+        this.search = new BatchSearch(SearchConfig.DEFAULT, computeThreads, SLICE);
+        this.admission = new Semaphore(maxSearches);
+        this.maxSearches = maxSearches;
+        this.timeLimit = timeLimit;
+        this.requestThreads = newRequestThreads();
+        this.http = HttpServer.create(address, 0);
+        http.setExecutor(requestThreads);
+        http.createContext(MOVE_PATH, this::handleMove);
+        http.createContext(STATS_PATH, this::handleStats);
+    }
+
+    /**
+     * @return an executor with a new virtual thread for every task, or a cached pool of daemon
+     * threads on a JDK without virtual threads.
+     */
+    @NotNull
+    static ExecutorService newRequestThreads() {
+        try {
+            // Looked up reflectively, so that the server still runs on older JDKs.
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "ten-server-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Start accepting requests.
+     */
+    void start() {
+        http.start();
+    }
+
+    /**
+     * @return the port the server is bound to.
+     */
+    int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * Stop accepting requests and stop the compute threads. Searches in progress fail.
+     */
+    @Override
+    public void close() {
+        http.stop(0);
+        search.close();
+        requestThreads.shutdownNow();
+    }
+
+    /**
+     * Answer a move request.
+     *
+     * @param exchange the exchange.
+     * @throws IOException if the client cannot be answered.
+     */
+    private void handleMove(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendText(exchange, 405, "Only POST is allowed!");
+                return;
+            }
+            Board board = readBoard(exchange.getRequestBody());
+            if (board == null || board.getAllLegalMovesForAI().isEmpty()) {
+                malformed.incrementAndGet();
+                sendText(exchange, 400, "Bad board!");
+                return;
+            }
+            ServerResponse cached = DecisionCache.getDefault().lookup(board);
+            if (cached != null) {
+                sendResponse(exchange, cached);
+                return;
+            }
+            if (!admission.tryAcquire()) {
+                rejected.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendText(exchange, 503, "Too many searches in progress!");
+                return;
+            }
+            ServerResponse response;
+            try {
+                response = respond(board);
+            } catch (RuntimeException e) {
+                // Failed searches and bugs are answered too, instead of dropping the exchange.
+                sendText(exchange, 500, "Search failed!");
+                return;
+            } finally {
+                admission.release();
+            }
+            sendResponse(exchange, response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Decide a move from the opening book, or by a search on the compute threads shared with
+     * every concurrent request for the same position.
+     *
+     * @param board the board.
+     * @return the response.
+     * @throws CompletionException if the search fails.
+     */
+    private ServerResponse respond(Board board) {
+        OpeningBook book = OpeningBook.getDefault();
+        if (book != null) {
+            ServerResponse response = book.lookup(board);
+            if (response != null) {
+                return response;
+            }
+        }
+        return DecisionCache.getDefault().respond(board,
+                position -> search.submit(position, Budget.ofTime(timeLimit)).join());
+    }
+
+    /**
+     * Answer a move and count it.
+     *
+     * @param exchange the exchange.
+     * @param response the response.
+     * @throws IOException if the client cannot be answered.
+     */
+    private void sendResponse(HttpExchange exchange, ServerResponse response)
+            throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(BinaryCodec.RESPONSE_BYTES);
+        BinaryCodec.encode(response, body);
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        exchange.sendResponseHeaders(200, body.capacity());
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body.array());
+        }
+        served.incrementAndGet();
+    }
+
+    /**
+     * @param body the request body.
+     * @return the board, or null if the body is not exactly one encoded board.
+     * @throws IOException if the body cannot be read.
+     */
+    @Nullable
+    private static Board readBoard(InputStream body) throws IOException {
+        byte[] bytes = new byte[BinaryCodec.BOARD_BYTES];
+        if (body.readNBytes(bytes, 0, bytes.length) != bytes.length || body.read() != -1) {
+            return null;
+        }
+        try {
+            return BinaryCodec.decodeBoard(ByteBuffer.wrap(bytes));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Serve the statistics.
+     *
+     * @param exchange the exchange.
+     * @throws IOException if the client cannot be answered.
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        DecisionCache cache = DecisionCache.getDefault();
+        try {
+            sendText(exchange, 200, "served " + served.get()
+                    + "\nrejected " + rejected.get()
+                    + "\nmalformed " + malformed.get()
+                    + "\nsearches " + (maxSearches - admission.availablePermits())
+                    + "\nmaxSearches " + maxSearches
+                    + "\ncacheHits " + cache.getHits()
+                    + "\ncacheMisses " + cache.getMisses()
+                    + "\ncacheJoins " + cache.getJoins()
+                    + "\ncacheEvictions " + cache.getEvictions() + "\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @param exchange the exchange.
+     * @param status the status code.
+     * @param text the text of the body.
+     * @throws IOException if the client cannot be answered.
+     */
+    private static void sendText(HttpExchange exchange, int status, String text)
+            throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Run a server until the process is stopped.
+     *
+     * @param args the optional port, number of compute threads, maximum number of searches in
+     * progress and time limit in milliseconds, in this order.
+     * @throws IOException if the port cannot be bound.
+     * @throws InterruptedException if the main thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int computeThreads = args.length > 1
+                ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxSearches = args.length > 2
+                ? Integer.parseInt(args[2]) : DEFAULT_SEARCHES_PER_THREAD * computeThreads;
+        long timeLimit = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_TIME_LIMIT;
+        GameServer server = new GameServer(
+                new InetSocketAddress(port), computeThreads, maxSearches, timeLimit);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("Serving on port " + server.getPort() + " with " + computeThreads
+                + " compute threads and up to " + maxSearches + " searches in progress.");
+        Thread.currentThread().join();
+    }
+
+}
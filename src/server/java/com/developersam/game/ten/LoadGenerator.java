@@ -0,0 +1,214 @@
+package com.developersam.game.ten;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A closed loop load generator of a {@link GameServer}.
+ * <p>
+ * Every client posts random positions back to back for a fixed duration. At the end, the
+ * latencies of the answered moves are reported as percentiles, together with the throughput and
+ * the number of requests shed by the server. Without a URL, the generator starts a server in the
+ * same process, so a load test runs locally with one command.
+ */
+final class LoadGenerator {
+
+    /**
+     * The number of random positions the clients cycle through.
+     */
+    private static final int POSITIONS = 256;
+
+    /**
+     * The latencies of the answered moves in nanoseconds and the number of shed requests of one
+     * client.
+     */
+    private static final class Result {
+
+        /**
+         * The latencies of the answered moves in nanoseconds.
+         */
+        private long[] latencies = new long[64];
+        /**
+         * The number of answered moves.
+         */
+        private int answered;
+        /**
+         * The number of requests shed by the server.
+         */
+        private int rejected;
+        /**
+         * The number of failed requests.
+         */
+        private int failed;
+
+        /**
+         * @param latency the latency of an answered move in nanoseconds.
+         */
+        private void add(long latency) {
+            if (answered == latencies.length) {
+                latencies = Arrays.copyOf(latencies, 2 * answered);
+            }
+            latencies[answered++] = latency;
+        }
+
+    }
+
+    private LoadGenerator() {
+    }
+
+    /**
+     * Generate the encoded positions of random games from the empty board, where the game has
+     * not ended.
+     *
+     * @param seed the seed.
+     * @return the encoded positions.
+     */
+    @NotNull
+    static byte[][] randomPositions(long seed) {
+        Random random = new Random(seed);
+        byte[][] positions = new byte[POSITIONS][];
+        for (int i = 0; i < POSITIONS; ) {
+            Board board = new Board(new BoardData(new int[81], -1, 1));
+            int moves = random.nextInt(40);
+            for (int j = 0; j < moves && board.getGameStatus() == 0; j++) {
+                List<Move> legalMoves = board.getAllLegalMovesForAI();
+                board = board.makeMoveWithoutCheck(
+                        legalMoves.get(random.nextInt(legalMoves.size())));
+            }
+            if (board.getGameStatus() != 0 || board.getAllLegalMovesForAI().isEmpty()) {
+                continue;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(BinaryCodec.BOARD_BYTES);
+            BinaryCodec.encode(board, buffer);
+            positions[i++] = buffer.array();
+        }
+        return positions;
+    }
+
+    /**
+     * Run one client until the deadline.
+     *
+     * @param client the HTTP client.
+     * @param uri the move URI of the server.
+     * @param positions the encoded positions.
+     * @param seed the seed of the order of the positions.
+     * @param deadline the time to stop in nanoseconds.
+     * @return the result of the client.
+     */
+    private static Result runClient(HttpClient client, URI uri, byte[][] positions, long seed,
+                                    long deadline) {
+        Random random = new Random(seed);
+        Result result = new Result();
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/octet-stream")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(
+                            positions[random.nextInt(positions.length)]))
+                    .build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<byte[]> response =
+                        client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                long latency = System.nanoTime() - start;
+                if (response.statusCode() == 200) {
+                    BinaryCodec.decodeResponse(ByteBuffer.wrap(response.body()));
+                    result.add(latency);
+                } else if (response.statusCode() == 503) {
+                    result.rejected++;
+                    // Back off a little, as a well behaved client would.
+                    Thread.sleep(10);
+                } else {
+                    result.failed++;
+                }
+            } catch (IOException e) {
+                result.failed++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param sorted the sorted latencies in nanoseconds.
+     * @param count the number of latencies.
+     * @param percentile the percentile between 0 and 100.
+     * @return the latency at the percentile in milliseconds.
+     */
+    private static double percentile(long[] sorted, int count, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    /**
+     * Run a load test and print the report.
+     *
+     * @param args the optional number of clients, duration in seconds and server URL, in this
+     * order. Without a URL, a server with the default settings is started in this process.
+     * @throws Exception if the test cannot run.
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        long duration = args.length > 1 ? Long.parseLong(args[1]) : 30;
+        GameServer localServer = null;
+        URI uri;
+        if (args.length > 2) {
+            uri = URI.create(args[2] + GameServer.MOVE_PATH);
+        } else {
+            int threads = Runtime.getRuntime().availableProcessors();
+            localServer = new GameServer(new InetSocketAddress("localhost", 0),
+                    threads, 4 * threads, 1500);
+            localServer.start();
+            uri = URI.create("http://localhost:" + localServer.getPort() + GameServer.MOVE_PATH);
+        }
+        byte[][] positions = randomPositions(42);
+        ExecutorService threads = GameServer.newRequestThreads();
+        HttpClient client = HttpClient.newBuilder().executor(threads).build();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(duration);
+        List<Future<Result>> futures = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            long seed = i;
+            futures.add(threads.submit(() -> runClient(client, uri, positions, seed, deadline)));
+        }
+        int answered = 0, rejected = 0, failed = 0;
+        long[] latencies = new long[0];
+        for (Future<Result> future : futures) {
+            Result result = future.get();
+            latencies = Arrays.copyOf(latencies, answered + result.answered);
+            System.arraycopy(result.latencies, 0, latencies, answered, result.answered);
+            answered += result.answered;
+            rejected += result.rejected;
+            failed += result.failed;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        threads.shutdownNow();
+        if (localServer != null) {
+            localServer.close();
+        }
+        System.out.printf("%d clients for %.1f s: %d answered (%.1f/s), %d rejected, %d failed%n",
+                clients, elapsed, answered, answered / elapsed, rejected, failed);
+        if (answered > 0) {
+            Arrays.sort(latencies);
+            System.out.printf("latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                    percentile(latencies, answered, 50), percentile(latencies, answered, 99),
+                    latencies[answered - 1] / 1e6);
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.developersam.game.ten;
+
+import com.developersam.game.ten.BatchSearch.Budget;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the batch search scheduler.
+ */
+public final class BatchSearchTest {
+
+    /**
+     * Searches with time and simulation budgets should all finish with legal moves, sharing
+     * fewer workers than searches.
+     */
+    @Test
+    public void allSearchesFinishWithinTheirBudgets() {
+        List<BoardData> boards = new ArrayList<>();
+        List<Budget> budgets = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            int[] tiles = new int[81];
+            tiles[i * 10] = 1;
+            boards.add(new BoardData(tiles, i, -1));
+            budgets.add(i % 2 == 0 ? Budget.ofTime(100) : Budget.ofSimulations(2000));
+        }
+        try (BatchSearch search = new BatchSearch(SearchConfig.DEFAULT, 2, 10)) {
+            List<CompletableFuture<ServerResponse>> futures = search.submitAll(boards, budgets);
+            for (int i = 0; i < futures.size(); i++) {
+                ServerResponse response = futures.get(i).join();
+                Board board = new Board(boards.get(i));
+                boolean legal = false;
+                for (Move move : board.getAllLegalMovesForAI()) {
+                    legal |= move.a == response.move[0] && move.b == response.move[1];
+                }
+                assertTrue(legal);
+                assertTrue(response.simulationCounter > 0);
+                if (i % 2 == 1) {
+                    assertTrue(response.simulationCounter >= 2000);
+                }
+            }
+        }
+    }
+
+    /**
+     * A forced move should be answered after its first slice instead of at its deadline.
+     */
+    @Test
+    public void forcedMoveFinishesBeforeItsDeadline() {
+        int[] tiles = new int[81];
+        // Big square 0 has no line and only its last tile empty.
+        int[] square = {1, -1, 1, 1, -1, -1, -1, 1};
+        System.arraycopy(square, 0, tiles, 0, square.length);
+        try (BatchSearch search = new BatchSearch(SearchConfig.DEFAULT, 1, 20)) {
+            long start = System.currentTimeMillis();
+            ServerResponse response = search.submit(new BoardData(tiles, 0, 1),
+                    Budget.ofTime(10_000)).join();
+            assertTrue(System.currentTimeMillis() - start < 1_000);
+            assertEquals(0, response.move[0]);
+            assertEquals(8, response.move[1]);
+            assertTrue(response.simulationCounter > 0);
+        }
+    }
+
+}
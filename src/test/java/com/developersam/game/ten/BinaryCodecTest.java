@@ -0,0 +1,95 @@
+package com.developersam.game.ten;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Check that the binary codec gives back what it encodes.
+ */
+public final class BinaryCodecTest {
+
+    /**
+     * Boards of random games must survive a round trip, and the board data of a client must
+     * encode to the same bytes as its board.
+     */
+    @Test
+    public void boardsRoundTrip() {
+        Random random = new Random(7);
+        ByteBuffer buffer = ByteBuffer.allocate(2 * BinaryCodec.BOARD_BYTES);
+        for (int game = 0; game < 100; game++) {
+            int[] tiles = new int[81];
+            Board board = new Board(new BoardData(new int[81], -1, 1));
+            while (true) {
+                buffer.clear();
+                BinaryCodec.encode(board, buffer);
+                BinaryCodec.encode(new BoardData(tiles.clone(), board.getBigSquareToPick(),
+                        board.getPlayerIdentity()), buffer);
+                assertEquals(2 * BinaryCodec.BOARD_BYTES, buffer.position());
+                byte[] fromBoard = new byte[BinaryCodec.BOARD_BYTES];
+                byte[] fromData = new byte[BinaryCodec.BOARD_BYTES];
+                buffer.flip();
+                buffer.get(fromBoard).get(fromData);
+                assertArrayEquals(fromBoard, fromData);
+                buffer.rewind();
+                Board decoded = BinaryCodec.decodeBoard(buffer);
+                assertEquals(board, decoded);
+                assertEquals(board.getHash(), decoded.getHash());
+                assertEquals(board.getGameStatus(), decoded.getGameStatus());
+                List<Move> moves = board.getAllLegalMovesForAI();
+                if (board.getGameStatus() != 0 || moves.isEmpty()) {
+                    break;
+                }
+                Move move = moves.get(random.nextInt(moves.size()));
+                tiles[move.a * 9 + move.b] = board.getPlayerIdentity();
+                board = board.makeMoveWithoutCheck(move);
+            }
+        }
+    }
+
+    /**
+     * Responses must survive a round trip in either byte order of the buffer.
+     */
+    @Test
+    public void responsesRoundTrip() {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            ByteBuffer buffer = ByteBuffer.allocate(BinaryCodec.RESPONSE_BYTES).order(order);
+            BinaryCodec.encode(new ServerResponse(new Move(8, 4), -37, 123_456_789), buffer);
+            assertEquals(BinaryCodec.RESPONSE_BYTES, buffer.position());
+            buffer.flip();
+            ServerResponse response = BinaryCodec.decodeResponse(buffer);
+            assertArrayEquals(new int[]{8, 4}, response.move);
+            assertEquals(-37, response.winningPercentage);
+            assertEquals(123_456_789, response.simulationCounter);
+        }
+    }
+
+    /**
+     * Bytes that do not encode a board must be rejected.
+     */
+    @Test
+    public void corruptBoardsAreRejected() {
+        byte[] overlapping = new byte[BinaryCodec.BOARD_BYTES];
+        // Tile 0 is set in both the black plane and the white plane, at bit 81.
+        overlapping[0] = 1;
+        overlapping[10] = 2;
+        byte[] badState = new byte[BinaryCodec.BOARD_BYTES];
+        badState[BinaryCodec.BOARD_BYTES - 1] = 10;
+        for (byte[] bytes : new byte[][]{overlapping, badState}) {
+            try {
+                BinaryCodec.decodeBoard(ByteBuffer.wrap(bytes));
+                fail("A corrupt board was decoded!");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+package com.developersam.game.ten;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Check the board against a naive array based reference implementation of the rules.
+ */
+public final class BoardTest {
+
+    /**
+     * The naive reference board.
+     */
+    private static final class ReferenceBoard {
+
+        final int[] tiles = new int[81];
+        final int[] statuses = new int[9];
+        int bigSquareToPick = -1;
+        int playerIdentity = 1;
+
+        private static boolean wins(int[] s, int offset, int id) {
+            int[][] lines = {{0, 1, 2}, {3, 4, 5}, {6, 7, 8}, {0, 3, 6}, {1, 4, 7}, {2, 5, 8},
+                    {0, 4, 8}, {2, 4, 6}};
+            for (int[] line : lines) {
+                if (s[offset + line[0]] == id && s[offset + line[1]] == id
+                        && s[offset + line[2]] == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int status(int[] s, int offset) {
+            if (wins(s, offset, 1)) {
+                return 1;
+            } else if (wins(s, offset, -1)) {
+                return -1;
+            }
+            for (int i = 0; i < 9; i++) {
+                if (s[offset + i] == 0) {
+                    return 0;
+                }
+            }
+            return 2;
+        }
+
+        List<Integer> legalMoves() {
+            List<Integer> moves = new ArrayList<>();
+            for (int a = 0; a < 9; a++) {
+                if (bigSquareToPick != -1 && bigSquareToPick != a || statuses[a] != 0) {
+                    continue;
+                }
+                for (int b = 0; b < 9; b++) {
+                    if (tiles[a * 9 + b] == 0) {
+                        moves.add(a * 9 + b);
+                    }
+                }
+            }
+            return moves;
+        }
+
+        void play(int a, int b) {
+            tiles[a * 9 + b] = playerIdentity;
+            statuses[a] = status(tiles, a * 9);
+            bigSquareToPick = statuses[b] == 0 ? b : -1;
+            playerIdentity = -playerIdentity;
+        }
+
+        int gameStatus() {
+            int simpleStatus = status(statuses, 0);
+            if (simpleStatus != 2) {
+                return simpleStatus;
+            }
+            int black = 0, white = 0;
+            for (int status : statuses) {
+                if (status == 1) {
+                    black++;
+                } else if (status == -1) {
+                    white++;
+                }
+            }
+            return black > white ? 1 : -1;
+        }
+
+    }
+
+    /**
+     * @param board the board.
+     * @return all legal moves of the board encoded as a * 9 + b.
+     */
+    private static List<Integer> legalMoves(Board board) {
+        List<Integer> moves = new ArrayList<>();
+        for (Move move : board.getAllLegalMovesForAI()) {
+            moves.add(move.a * 9 + move.b);
+        }
+        return moves;
+    }
+
+    /**
+     * Play random games on both boards and compare their observable states at every step.
+     */
+    @Test
+    public void bitboardAgreesWithReference() {
+        Random random = new Random(42);
+        for (int game = 0; game < 500; game++) {
+            ReferenceBoard reference = new ReferenceBoard();
+            Board board = new Board(new BoardData(new int[81], -1, 1));
+            while (true) {
+                assertEquals(reference.playerIdentity, board.getPlayerIdentity());
+                assertEquals(reference.bigSquareToPick, board.getBigSquareToPick());
+                int status = reference.gameStatus();
+                assertEquals(status, board.getGameStatus());
+                List<Integer> moves = reference.legalMoves();
+                if (status != 0 && moves.isEmpty()) {
+                    break;
+                }
+                assertEquals(moves, legalMoves(board));
+                if (moves.isEmpty()) {
+                    break;
+                }
+                int move = moves.get(random.nextInt(moves.size()));
+                reference.play(move / 9, move % 9);
+                board = board.makeMoveWithoutCheck(new Move(move / 9, move % 9));
+                // Reconstructing from raw data must give the same state.
+                Board rebuilt = new Board(new BoardData(
+                        reference.tiles.clone(), reference.bigSquareToPick,
+                        reference.playerIdentity));
+                assertEquals(legalMoves(board), legalMoves(rebuilt));
+                assertEquals(board.getGameStatus(), rebuilt.getGameStatus());
+                // The incremental hash must match the hash computed from scratch.
+                assertEquals(rebuilt.getHash(), board.getHash());
+            }
+        }
+    }
+
+    /**
+     * @param board the playout board.
+     * @return all legal moves of the board encoded as a * 9 + b.
+     */
+    private static List<Integer> legalMoves(PlayoutBoard board) {
+        List<Integer> moves = new ArrayList<>();
+        for (long low = board.legalMovesLow(); low != 0; low &= low - 1) {
+            moves.add(Long.numberOfTrailingZeros(low));
+        }
+        for (long high = board.legalMovesHigh(); high != 0; high &= high - 1) {
+            moves.add(63 + Long.numberOfTrailingZeros(high));
+        }
+        return moves;
+    }
+
+    /**
+     * Play random games on the playout board and check it stays in sync with the immutable board.
+     */
+    @Test
+    public void playoutBoardAgreesWithBoard() {
+        FastRandom random = new FastRandom(7);
+        PlayoutBoard playoutBoard = new PlayoutBoard();
+        for (int game = 0; game < 500; game++) {
+            Board board = new Board(new BoardData(new int[81], -1, 1));
+            board.copyInto(playoutBoard);
+            while (board.getGameStatus() == 0) {
+                assertEquals(board.getPlayerIdentity(), playoutBoard.getPlayerIdentity());
+                assertEquals(legalMoves(board), legalMoves(playoutBoard));
+                int move = playoutBoard.randomLegalMove(random);
+                assertTrue(legalMoves(board).contains(move));
+                playoutBoard.makeMove(move);
+                board = board.makeMoveWithoutCheck(new Move(move / 9, move % 9));
+                assertEquals(board.getGameStatus(), playoutBoard.getGameStatus());
+                assertEquals(board.getHash(), playoutBoard.getHash());
+            }
+        }
+    }
+
+    /**
+     * @return a board that must be picked in big square 0, which is full without a line.
+     */
+    private static BoardData boardWithoutLegalMoves() {
+        int[] tiles = new int[81];
+        int[] square = {1, -1, 1, 1, -1, -1, -1, 1, 1};
+        System.arraycopy(square, 0, tiles, 0, square.length);
+        return new BoardData(tiles, 0, 1);
+    }
+
+    /**
+     * A position without legal moves must be rejected instead of looping forever.
+     */
+    @Test
+    public void randomMoveWithoutLegalMovesFails() {
+        Board board = new Board(boardWithoutLegalMoves());
+        PlayoutBoard playoutBoard = new PlayoutBoard();
+        board.copyInto(playoutBoard);
+        assertEquals(0, playoutBoard.getGameStatus());
+        try {
+            playoutBoard.randomLegalMove(new FastRandom(1));
+            fail("A move was picked without legal moves!");
+        } catch (IllegalStateException e) {
+            assertEquals("There is no legal move!", e.getMessage());
+        }
+    }
+
+    /**
+     * A client board without legal moves must be rejected before any tree is built.
+     */
+    @Test
+    public void clientBoardWithoutLegalMovesIsRejected() {
+        try {
+            Board.respondToClient(boardWithoutLegalMoves());
+            fail("A board without legal moves was searched!");
+        } catch (IllegalArgumentException e) {
+            assertEquals("The board has no legal move!", e.getMessage());
+        }
+        NodePool pool = new NodePool();
+        assertEquals(0, pool.allocateEdges(0));
+        assertEquals(0, pool.allocateEdges(0));
+    }
+
+}
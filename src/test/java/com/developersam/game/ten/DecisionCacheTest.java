@@ -0,0 +1,124 @@
+package com.developersam.game.ten;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the decision cache.
+ */
+public final class DecisionCacheTest {
+
+    /**
+     * @param a the big square of a black tile.
+     * @param b the small square of the black tile.
+     * @return the board with the black tile, where white picks in big square b.
+     */
+    private static Board boardWithTile(int a, int b) {
+        int[] tiles = new int[81];
+        tiles[a * 9 + b] = 1;
+        return new Board(new BoardData(tiles, b, -1));
+    }
+
+    /**
+     * A decision must be shared by symmetric positions, with the move in their own orientation.
+     */
+    @Test
+    public void symmetricPositionsShareDecisions() {
+        DecisionCache cache = new DecisionCache(16);
+        AtomicInteger searches = new AtomicInteger();
+        // The boards are mirror images, and neither has a symmetry of its own.
+        Board board = boardWithTile(0, 1);
+        Board mirrored = boardWithTile(2, 1);
+        ServerResponse first = cache.respond(board, position -> {
+            searches.incrementAndGet();
+            return new ServerResponse(new Move(1, 0), 60, 1000);
+        });
+        assertArrayEquals(new int[]{1, 0}, first.move);
+        ServerResponse second = cache.respond(mirrored, position -> {
+            searches.incrementAndGet();
+            return new ServerResponse(new Move(4, 4), 50, 1);
+        });
+        assertEquals(1, searches.get());
+        assertArrayEquals(new int[]{1, 2}, second.move);
+        assertEquals(60, second.winningPercentage);
+        assertEquals(1000, second.simulationCounter);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    /**
+     * The least recently used decision must be evicted when the cache is full.
+     */
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        DecisionCache cache = new DecisionCache(2);
+        Board first = boardWithTile(0, 0), second = boardWithTile(4, 4);
+        Board third = boardWithTile(0, 1);
+        cache.respond(first, position -> new ServerResponse(new Move(0, 1), 50, 1));
+        cache.respond(second, position -> new ServerResponse(new Move(4, 0), 50, 1));
+        // Touch the first board so that the second is the least recently used.
+        assertTrue(cache.lookup(first) != null);
+        cache.respond(third, position -> new ServerResponse(new Move(1, 0), 50, 1));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.lookup(second));
+        assertTrue(cache.lookup(first) != null);
+    }
+
+    /**
+     * Concurrent requests for one position must wait for a single search.
+     */
+    @Test
+    public void concurrentRequestsShareOneSearch() throws Exception {
+        DecisionCache cache = new DecisionCache(16);
+        Board board = boardWithTile(4, 4);
+        int requests = 8;
+        AtomicInteger searches = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<ServerResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                responses.add(threads.submit(() -> cache.respond(board, position -> {
+                    searches.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return new ServerResponse(new Move(4, 0), 70, 500);
+                })));
+            }
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            // Nothing is cached before the release, so every other request must join.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (cache.getJoins() < requests - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<ServerResponse> response : responses) {
+                assertArrayEquals(new int[]{4, 0}, response.get().move);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+        assertEquals(1, searches.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(requests - 1, cache.getJoins());
+    }
+
+}
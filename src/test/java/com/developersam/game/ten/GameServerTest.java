@@ -0,0 +1,130 @@
+package com.developersam.game.ten;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the game server.
+ */
+public final class GameServerTest {
+
+    /**
+     * @param blackTile the tile of black.
+     * @param whiteTile the tile of white, which decides the big square for black to pick in.
+     * @return the encoded board after the two tiles with black to move.
+     */
+    private static byte[] encodedBoard(int blackTile, int whiteTile) {
+        int[] tiles = new int[81];
+        tiles[blackTile] = 1;
+        tiles[whiteTile] = -1;
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryCodec.BOARD_BYTES);
+        BinaryCodec.encode(new Board(new BoardData(tiles, whiteTile % 9, 1)), buffer);
+        return buffer.array();
+    }
+
+    /**
+     * @param server the server.
+     * @param path the path.
+     * @return the URI of the path on the server.
+     */
+    private static URI uri(GameServer server, String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    /**
+     * @param server the server.
+     * @param body the request body.
+     * @return the request of a move.
+     */
+    private static HttpRequest moveRequest(GameServer server, byte[] body) {
+        return HttpRequest.newBuilder(uri(server, GameServer.MOVE_PATH))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+    }
+
+    /**
+     * @param client the client.
+     * @param server the server.
+     * @param name the name of a statistic.
+     * @return the value of the statistic.
+     * @throws IOException if the statistics cannot be fetched.
+     * @throws InterruptedException if the request is interrupted.
+     */
+    private static long stat(HttpClient client, GameServer server, String name)
+            throws IOException, InterruptedException {
+        String stats = client.send(HttpRequest.newBuilder(uri(server, GameServer.STATS_PATH))
+                .build(), HttpResponse.BodyHandlers.ofString()).body();
+        for (String line : stats.split("\n")) {
+            if (line.startsWith(name + " ")) {
+                return Long.parseLong(line.substring(name.length() + 1));
+            }
+        }
+        throw new AssertionError("Missing statistic: " + name + "!");
+    }
+
+    /**
+     * Wait for a statistic to reach a value, since counters are updated after the client has
+     * been answered.
+     *
+     * @param client the client.
+     * @param server the server.
+     * @param name the name of a statistic.
+     * @param value the expected value.
+     * @throws IOException if the statistics cannot be fetched.
+     * @throws InterruptedException if the request is interrupted.
+     */
+    private static void awaitStat(HttpClient client, GameServer server, String name, long value)
+            throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (stat(client, server, name) != value && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(value, stat(client, server, name));
+    }
+
+    /**
+     * A request beyond the limit of searches in progress must be shed with 503 and Retry-After,
+     * a malformed board must be rejected with 400, and the statistics must count both.
+     */
+    @Test
+    public void admissionControlShedsExtraSearches() throws Exception {
+        try (GameServer server = new GameServer(
+                new InetSocketAddress("127.0.0.1", 0), 1, 1, 3000)) {
+            server.start();
+            HttpClient client = HttpClient.newHttpClient();
+            // Positions that are in neither the opening book nor the decision cache.
+            CompletableFuture<HttpResponse<byte[]>> held = client.sendAsync(
+                    moveRequest(server, encodedBoard(4, 36)),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            awaitStat(client, server, "searches", 1);
+            HttpResponse<String> shed = client.send(moveRequest(server, encodedBoard(23, 48)),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(503, shed.statusCode());
+            assertEquals("1", shed.headers().firstValue("Retry-After").orElse(null));
+            HttpResponse<String> malformed = client.send(moveRequest(server, new byte[5]),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, malformed.statusCode());
+            HttpResponse<byte[]> answered = held.get(30, TimeUnit.SECONDS);
+            assertEquals(200, answered.statusCode());
+            ServerResponse response = BinaryCodec.decodeResponse(ByteBuffer.wrap(answered.body()));
+            assertEquals(0, response.move[0]);
+            assertTrue(response.simulationCounter > 0);
+            awaitStat(client, server, "served", 1);
+            assertEquals(1, stat(client, server, "rejected"));
+            assertEquals(1, stat(client, server, "malformed"));
+            assertEquals(0, stat(client, server, "searches"));
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.developersam.game.ten;
+
+import com.developersam.game.ten.MCTS.Decision;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check that a game session reuses its tree between moves.
+ */
+public final class GameSessionTest {
+
+    /**
+     * After the AI move and a reply, the search should start from the previous grandchild.
+     */
+    @Test
+    public void searchContinuesFromGrandchild() {
+        SearchConfig config = SearchConfig.DEFAULT.withTimeLimit(100).withThreads(2);
+        try (GameSession session = new GameSession(config, GameSession.DEFAULT_IDLE_TIMEOUT)) {
+            Board board = new Board(new BoardData(new int[81], -1, 1));
+            Decision first = session.selectMove(board);
+            assertEquals(0, session.getReusedSimulations());
+            Board afterAi = board.makeMoveWithoutCheck(first.move);
+            Board afterReply = afterAi.makeMoveWithoutCheck(afterAi.getAllLegalMovesForAI().get(0));
+            session.selectMove(afterReply);
+            assertTrue(session.getReusedSimulations() > 0);
+        }
+    }
+
+    /**
+     * With pondering, the reply's subtree should keep growing after the answer, so the next
+     * search inherits more simulations than it would without pondering.
+     */
+    @Test
+    public void ponderingSearchesTheReplies() throws InterruptedException {
+        assertTrue(reusedAfterReply(true) > reusedAfterReply(false));
+    }
+
+    /**
+     * @param ponder whether to ponder.
+     * @return the simulations inherited by the search after a fixed search and a reply.
+     */
+    private static long reusedAfterReply(boolean ponder) throws InterruptedException {
+        SearchConfig config = SearchConfig.DEFAULT.withTimeLimit(10_000)
+                .withSimulationLimit(2000).withThreads(1).withSeed(7);
+        try (GameSession session = new GameSession(config, GameSession.DEFAULT_IDLE_TIMEOUT)) {
+            if (ponder) {
+                session.setPondering(10_000, 1 << 20);
+            }
+            Board board = new Board(new BoardData(new int[81], -1, 1));
+            Decision first = session.selectMove(board);
+            Thread.sleep(200);
+            Board afterAi = board.makeMoveWithoutCheck(first.move);
+            Board afterReply = afterAi.makeMoveWithoutCheck(afterAi.getAllLegalMovesForAI().get(0));
+            session.selectMove(afterReply);
+            return session.getReusedSimulations();
+        }
+    }
+
+    /**
+     * Under a clock, every answer should be charged to the clock and never run it out.
+     */
+    @Test
+    public void clockIsChargedAndCredited() {
+        try (GameSession session = new GameSession(SearchConfig.DEFAULT.withThreads(1),
+                GameSession.DEFAULT_IDLE_TIMEOUT)) {
+            session.setClock(1000, 100);
+            Board board = new Board(new BoardData(new int[81], -1, 1));
+            for (int i = 0; i < 3; i++) {
+                long before = session.getRemainingTime();
+                Decision decision = session.selectMove(board);
+                long after = session.getRemainingTime();
+                assertTrue(after > 0);
+                assertTrue(after < before + 100);
+                Board afterAi = board.makeMoveWithoutCheck(decision.move);
+                board = afterAi.makeMoveWithoutCheck(afterAi.getAllLegalMovesForAI().get(0));
+            }
+        }
+    }
+
+    /**
+     * A board unrelated to the previous search starts a new tree.
+     */
+    @Test
+    public void unrelatedBoardStartsNewTree() {
+        SearchConfig config = SearchConfig.DEFAULT.withTimeLimit(50).withThreads(1);
+        try (GameSession session = new GameSession(config, GameSession.DEFAULT_IDLE_TIMEOUT)) {
+            int[] tiles = new int[81];
+            tiles[40] = 1;
+            tiles[80] = -1;
+            session.selectMove(new Board(new BoardData(new int[81], -1, 1)));
+            session.selectMove(new Board(new BoardData(tiles, 0, 1)));
+            assertEquals(0, session.getReusedSimulations());
+        }
+    }
+
+}
@@ -0,0 +1,337 @@
+package com.developersam.game.ten;
+
+import com.developersam.game.ten.MCTS.Decision;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sanity checks of the different MCTS search modes.
+ */
+public final class MCTSTest {
+
+    /**
+     * @param board the board.
+     * @param move the move.
+     * @return whether the move is legal on the board.
+     */
+    private static boolean isLegal(Board board, Move move) {
+        for (Move legalMove : board.getAllLegalMovesForAI()) {
+            if (legalMove.a == move.a && legalMove.b == move.b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Several workers searching the same tree should give a legal move.
+     */
+    @Test
+    public void treeParallelSearchGivesLegalMove() {
+        Board board = new Board(new BoardData(new int[81], -1, 1));
+        Decision decision = MCTS.selectMove(board, SearchConfig.DEFAULT
+                .withTimeLimit(100).withThreads(4).withSeed(1));
+        assertTrue(isLegal(board, decision.move));
+        assertTrue(decision.simulationCounter > 0);
+    }
+
+    /**
+     * With RAVE, a move should have all-moves-as-first statistics from at least every
+     * simulation through its own child, since those all played it.
+     */
+    @Test
+    public void raveSearchRecordsAllMovesAsFirst() {
+        Board board = new Board(new BoardData(new int[81], -1, 1));
+        NodePool pool = new NodePool();
+        MCTS.resetTree(pool);
+        Decision decision = MCTS.selectMove(pool, board, SearchConfig.DEFAULT
+                .withTimeLimit(100).withThreads(2).withRaveEquivalence(1000));
+        assertTrue(isLegal(board, decision.move));
+        int firstEdge = pool.firstEdge(0);
+        assertTrue(firstEdge >= 0);
+        for (int edge = firstEdge; edge < firstEdge + pool.edgeCount(0); edge++) {
+            assertTrue(pool.amafVisits(edge) >= pool.visits(pool.edgeTarget(edge)));
+        }
+    }
+
+    /**
+     * With progressive expansion, the tree should keep untried moves without nodes, and a
+     * subtree with untried moves should still be copyable for reuse.
+     */
+    @Test
+    public void progressiveSearchLeavesMovesUntried() {
+        Board board = new Board(new BoardData(new int[81], -1, 1));
+        NodePool pool = new NodePool();
+        MCTS.resetTree(pool);
+        Decision decision = MCTS.selectMove(pool, board, SearchConfig.DEFAULT
+                .withTimeLimit(100).withThreads(2).withProgressiveExpansion(true));
+        assertTrue(isLegal(board, decision.move));
+        int untried = 0;
+        int bestChild = NodePool.NONE;
+        for (int node = 0; node < pool.size(); node++) {
+            int firstEdge = pool.firstEdge(node);
+            for (int edge = firstEdge; firstEdge >= 0 && edge < firstEdge + pool.edgeCount(node);
+                 edge++) {
+                int target = pool.edgeTarget(edge);
+                assertTrue(target >= NodePool.NONE);
+                if (target == NodePool.NONE) {
+                    untried++;
+                } else if (node == 0 && (bestChild == NodePool.NONE
+                        || pool.visits(target) > pool.visits(bestChild))) {
+                    bestChild = target;
+                }
+            }
+        }
+        assertTrue(untried > 0);
+        NodePool copy = new NodePool();
+        copy.copySubtree(pool, bestChild, true);
+        assertEquals(pool.visits(bestChild), copy.visits(0));
+    }
+
+    /**
+     * A forced move should be answered right away instead of after the time limit.
+     */
+    @Test
+    public void forcedMoveIsAnsweredImmediately() {
+        int[] tiles = new int[81];
+        // Big square 0 has no line and only its last tile empty.
+        int[] square = {1, -1, 1, 1, -1, -1, -1, 1};
+        System.arraycopy(square, 0, tiles, 0, square.length);
+        Board board = new Board(new BoardData(tiles, 0, 1));
+        long start = System.currentTimeMillis();
+        Decision decision = MCTS.selectMove(board, SearchConfig.DEFAULT.withTimeLimit(10_000));
+        assertTrue(System.currentTimeMillis() - start < 5_000);
+        assertEquals(0, decision.move.a);
+        assertEquals(8, decision.move.b);
+        assertTrue(decision.simulationCounter > 0);
+    }
+
+    /**
+     * In a won endgame, the search should prove the root, stop long before its time limit and
+     * play a move that keeps the win.
+     */
+    @Test
+    public void solverPlaysProvenWin() {
+        EndgameSolver solver = new EndgameSolver();
+        PlayoutBoard playoutBoard = new PlayoutBoard();
+        Random random = new Random(3);
+        Board board;
+        do {
+            board = new Board(new BoardData(new int[81], -1, 1));
+            board.copyInto(playoutBoard);
+            while (board.getGameStatus() == 0 && playoutBoard.countEmptyTiles() > 20) {
+                List<Move> moves = board.getAllLegalMovesForAI();
+                board = board.makeMoveWithoutCheck(moves.get(random.nextInt(moves.size())));
+                board.copyInto(playoutBoard);
+            }
+        } while (board.getGameStatus() != 0
+                || solver.solve(playoutBoard) != board.getPlayerIdentity());
+        long start = System.currentTimeMillis();
+        Decision decision = MCTS.selectMove(board, SearchConfig.DEFAULT
+                .withTimeLimit(10_000).withThreads(2));
+        assertTrue(System.currentTimeMillis() - start < 5_000);
+        assertEquals(100, decision.winningPercentage);
+        Board next = board.makeMoveWithoutCheck(decision.move);
+        next.copyInto(playoutBoard);
+        assertTrue(next.getGameStatus() == board.getPlayerIdentity()
+                || solver.solve(playoutBoard) == board.getPlayerIdentity());
+    }
+
+    /**
+     * @param seed the seed of the random moves.
+     * @param emptyTiles the number of empty tiles to stop at.
+     * @return a board reached by random moves whose game has not ended.
+     */
+    private static Board randomBoard(long seed, int emptyTiles) {
+        Random random = new Random(seed);
+        PlayoutBoard playoutBoard = new PlayoutBoard();
+        Board board;
+        do {
+            board = new Board(new BoardData(new int[81], -1, 1));
+            board.copyInto(playoutBoard);
+            while (board.getGameStatus() == 0 && playoutBoard.countEmptyTiles() > emptyTiles) {
+                List<Move> moves = board.getAllLegalMovesForAI();
+                board = board.makeMoveWithoutCheck(moves.get(random.nextInt(moves.size())));
+                board.copyInto(playoutBoard);
+            }
+        } while (board.getGameStatus() != 0);
+        return board;
+    }
+
+    /**
+     * A seeded single-threaded search with a simulation limit must give the same decision
+     * whatever endgames were solved before it on the same thread.
+     */
+    @Test
+    public void endgameSearchDoesNotDependOnEarlierSearches() {
+        // Some solves of this size give up unless the first search already solved their parts.
+        SearchConfig config = SearchConfig.DEFAULT.withThreads(1).withSeed(5)
+                .withTimeLimit(Long.MAX_VALUE).withSimulationLimit(2000).withSolverThreshold(30);
+        Board board = randomBoard(3, 36);
+        Decision first = MCTS.selectMove(board, config);
+        Decision second = MCTS.selectMove(board, config);
+        assertEquals(first.simulationCounter, second.simulationCounter);
+        assertEquals(first.winningPercentage, second.winningPercentage);
+        assertTrue(Arrays.equals(first.rootVisits, second.rootVisits));
+    }
+
+    /**
+     * A search with a node limit should keep searching without growing its tree past the limit
+     * by more than one expansion per worker.
+     */
+    @Test
+    public void nodeLimitBoundsTheTree() {
+        Board board = new Board(new BoardData(new int[81], -1, 1));
+        NodePool pool = new NodePool();
+        MCTS.resetTree(pool);
+        Decision decision = MCTS.selectMove(pool, board, SearchConfig.DEFAULT
+                .withTimeLimit(100).withThreads(2).withNodeLimit(1000));
+        assertTrue(isLegal(board, decision.move));
+        assertTrue(pool.size() <= 1000 + 2 * 81);
+        assertTrue(decision.simulationCounter > 1000);
+    }
+
+    /**
+     * A pool that freed its extra chunks on reset should grow again for a large tree.
+     */
+    @Test
+    public void resetPoolGrowsAgain() {
+        NodePool pool = new NodePool();
+        int nodes = 5 << 16;
+        for (int round = 0; round < 2; round++) {
+            pool.reset();
+            for (int i = 0; i < nodes; i++) {
+                pool.init(pool.allocate(), round, i);
+            }
+            pool.allocateEdges(nodes);
+            assertEquals(nodes - 1, pool.visits(nodes - 1));
+            assertEquals(round, pool.wins(nodes - 1));
+        }
+        MCTS.resetTree(pool);
+        Board board = new Board(new BoardData(new int[81], -1, 1));
+        Decision decision = MCTS.selectMove(pool, board, SearchConfig.DEFAULT
+                .withTimeLimit(50).withRaveEquivalence(1000));
+        assertTrue(isLegal(board, decision.move));
+    }
+
+    /**
+     * Independent trees should all contribute to the merged decision.
+     */
+    @Test
+    public void rootParallelSearchMergesTrees() {
+        Board board = new Board(new BoardData(new int[81], -1, 1));
+        Decision decision = MCTS.selectMove(board, SearchConfig.DEFAULT
+                .withTimeLimit(100).withThreads(1).withRootParallelism(3).withSeed(2));
+        assertTrue(isLegal(board, decision.move));
+        assertEquals(3, decision.treeSimulationCounters.length);
+        int sum = 0;
+        for (int counter : decision.treeSimulationCounters) {
+            assertTrue(counter > 0);
+            sum += counter;
+        }
+        assertEquals(sum, decision.simulationCounter);
+    }
+
+    /**
+     * A full transposition table must keep working by replacing entries, and searching without
+     * the table must still work.
+     */
+    @Test
+    public void searchWorksWithAnySizeOfTranspositionTable() {
+        Board board = new Board(new BoardData(new int[81], -1, 1));
+        for (int entries : new int[]{0, 4, 1 << 16}) {
+            Decision decision = MCTS.selectMove(board, SearchConfig.DEFAULT
+                    .withTimeLimit(100).withThreads(2).withTranspositionTableSize(entries)
+                    .withSeed(3));
+            assertTrue(isLegal(board, decision.move));
+            assertTrue(decision.simulationCounter > 0);
+        }
+    }
+
+    /**
+     * Positions whose hashes share a bucket and all but a few bits must not share a node.
+     */
+    @Test
+    public void transpositionsMatchTheFullHash() {
+        NodePool pool = new NodePool();
+        for (int i = 0; i < 8; i++) {
+            pool.init(pool.allocate(), 0, i);
+        }
+        TranspositionTable table = new TranspositionTable(4);
+        long hash = 0x9E3779B97F4A7C15L;
+        table.put(hash, 3, pool);
+        assertEquals(3, table.find(hash));
+        for (int bit = 0; bit < 64; bit++) {
+            assertEquals(NodePool.NONE, table.find(hash ^ (1L << bit)));
+        }
+        // A full bucket replaces the least visited node.
+        for (int node = 4; node < 8; node++) {
+            table.put(hash + node, node, pool);
+        }
+        assertEquals(NodePool.NONE, table.find(hash));
+        assertEquals(7, table.find(hash + 7));
+    }
+
+    /**
+     * An asynchronous search should publish snapshots while it runs and stop publishing once
+     * it is cancelled.
+     */
+    @Test
+    public void asyncSearchPublishesSnapshotsAndCanBeCancelled() throws InterruptedException {
+        Board board = new Board(new BoardData(new int[81], -1, 1));
+        List<Decision> snapshots = new CopyOnWriteArrayList<>();
+        Decision decision = MCTS.selectMoveAsync(board, SearchConfig.DEFAULT
+                .withTimeLimit(200).withThreads(2), 20, snapshots::add).join();
+        assertTrue(isLegal(board, decision.move));
+        assertFalse(snapshots.isEmpty());
+        for (Decision snapshot : snapshots) {
+            assertTrue(isLegal(board, snapshot.move));
+            assertTrue(snapshot.simulationCounter <= decision.simulationCounter);
+        }
+
+        snapshots.clear();
+        CompletableFuture<Decision> future = MCTS.selectMoveAsync(board, SearchConfig.DEFAULT
+                .withTimeLimit(60_000), 10, snapshots::add);
+        Thread.sleep(100);
+        assertTrue(future.cancel(false));
+        Thread.sleep(50);
+        int published = snapshots.size();
+        Thread.sleep(100);
+        assertEquals(published, snapshots.size());
+    }
+
+    /**
+     * The listener should receive consistent metrics of the search.
+     */
+    @Test
+    public void listenerReceivesSearchMetrics() {
+        Board board = new Board(new BoardData(new int[81], -1, 1));
+        List<SearchMetrics> reports = new CopyOnWriteArrayList<>();
+        Decision decision = MCTS.selectMove(board, SearchConfig.DEFAULT
+                .withTimeLimit(100).withThreads(2).withListener(reports::add));
+        assertEquals(1, reports.size());
+        SearchMetrics metrics = reports.get(0);
+        assertEquals(decision.simulationCounter, metrics.getSimulations());
+        assertEquals(2, metrics.getThreads());
+        assertTrue(metrics.getNodesAllocated() > 0);
+        assertTrue(metrics.getMaxDepth() >= 1);
+        assertTrue(metrics.getAverageDepth() <= metrics.getMaxDepth());
+        assertTrue(metrics.getPlayoutNanos() > 0);
+        assertTrue(metrics.getSimulationsPerSecond() > 0);
+        long rootVisits = 0;
+        for (long visits : metrics.getRootVisits()) {
+            rootVisits += visits;
+        }
+        assertTrue(rootVisits > 0);
+    }
+
+}
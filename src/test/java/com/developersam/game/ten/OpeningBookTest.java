@@ -0,0 +1,99 @@
+package com.developersam.game.ten;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests of the canonical hash and the book file.
+ */
+public final class OpeningBookTest {
+
+    /**
+     * @param tiles the tiles of a board.
+     * @param bigSquareToPick the big square to pick.
+     * @param playerIdentity the current player.
+     * @param symmetry the symmetry.
+     * @return the board transformed by the symmetry.
+     */
+    private static Board transform(int[] tiles, int bigSquareToPick, int playerIdentity,
+                                   int symmetry) {
+        int[] transformed = new int[81];
+        for (int i = 0; i < 81; i++) {
+            transformed[OpeningBook.transform(i, symmetry)] = tiles[i];
+        }
+        int transformedBigSquare = bigSquareToPick == -1
+                ? -1 : OpeningBook.SYMMETRIES[symmetry][bigSquareToPick];
+        return new Board(new BoardData(transformed, transformedBigSquare, playerIdentity));
+    }
+
+    /**
+     * All symmetric boards should have the same canonical hash, which differs from the canonical
+     * hash of an asymmetric neighbor.
+     */
+    @Test
+    public void canonicalHashIsSymmetric() {
+        int[] tiles = new int[81];
+        tiles[1] = 1;
+        tiles[9 + 5] = -1;
+        tiles[45 + 0] = 1;
+        long canonical = OpeningBook.canonicalHash(new Board(new BoardData(tiles, 0, -1)));
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            assertEquals(canonical, OpeningBook.canonicalHash(transform(tiles, 0, -1, symmetry)));
+        }
+        tiles[45 + 0] = 0;
+        tiles[45 + 1] = 1;
+        long other = OpeningBook.canonicalHash(new Board(new BoardData(tiles, 0, -1)));
+        assertEquals(false, canonical == other);
+    }
+
+    /**
+     * A move written for one board should be found on all its symmetric boards, in their own
+     * orientation.
+     */
+    @Test
+    public void lookupMapsMovesBack() throws IOException {
+        int[] tiles = new int[81];
+        tiles[2 * 9 + 7] = 1;
+        Board board = new Board(new BoardData(tiles, 7, -1));
+        Move move = new Move(7, 3);
+        Path file = Files.createTempFile("opening-book", ".bin");
+        try {
+            List<OpeningBook.Entry> entries = new ArrayList<>();
+            entries.add(new OpeningBook.Entry(board, move, 55, 12345));
+            for (Board position : OpeningBookBuilder.enumeratePositions(1)) {
+                if (OpeningBook.canonicalHash(position) != OpeningBook.canonicalHash(board)) {
+                    entries.add(new OpeningBook.Entry(position, new Move(4, 4), 50, 1));
+                }
+            }
+            Collections.shuffle(entries, new Random(1));
+            OpeningBook.write(file, entries);
+            OpeningBook book = OpeningBook.open(file);
+            assertEquals(16, book.size());
+            for (int symmetry = 0; symmetry < 8; symmetry++) {
+                ServerResponse response = book.lookup(transform(tiles, 7, -1, symmetry));
+                assertNotNull(response);
+                int expected = OpeningBook.transform(move.a * 9 + move.b, symmetry);
+                assertArrayEquals(new int[]{expected / 9, expected % 9}, response.move);
+                assertEquals(55, response.winningPercentage);
+                assertEquals(12345, response.simulationCounter);
+            }
+            tiles[0] = -1;
+            assertNull(book.lookup(new Board(new BoardData(tiles, 0, 1))));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.developersam.game.ten;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the self-play records.
+ */
+public final class SelfPlayTest {
+
+    /**
+     * The configuration of quick reproducible games.
+     */
+    private static final SearchConfig CONFIG = SearchConfig.DEFAULT.withThreads(1)
+            .withRootParallelism(1).withTimeLimit(60_000).withSimulationLimit(50);
+
+    /**
+     * Recorded games must be legal and complete, and a file with an incomplete last block must
+     * be resumed by playing only the missing games.
+     */
+    @Test
+    public void recordsAreResumable() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("self-play", ".bin");
+        Files.delete(file);
+        try {
+            try (SelfPlay selfPlay = new SelfPlay(file, CONFIG, 5)) {
+                assertEquals(3, selfPlay.run(3, 2, 60_000));
+            }
+            List<SelfPlay.Record> records = readAll(file);
+            checkGames(records, 3);
+            // An interruption in the middle of writing a block leaves a part of it behind.
+            byte[] partial = new byte[20];
+            partial[3] = 100;
+            Files.write(file, partial, StandardOpenOption.APPEND);
+            try (SelfPlay selfPlay = new SelfPlay(file, CONFIG, 5)) {
+                assertEquals(3, selfPlay.recordedGameCount());
+                assertEquals(1, selfPlay.run(4, 2, 60_000));
+            }
+            List<SelfPlay.Record> resumed = readAll(file);
+            checkGames(resumed, 4);
+            for (int i = 0; i < records.size(); i++) {
+                assertEquals(records.get(i).board, resumed.get(i).board);
+                assertEquals(records.get(i).move, resumed.get(i).move);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * @param file a record file.
+     * @return all records of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private static List<SelfPlay.Record> readAll(Path file) throws IOException {
+        List<SelfPlay.Record> records = new ArrayList<>();
+        SelfPlay.read(file, records::add);
+        return records;
+    }
+
+    /**
+     * Replay the recorded games and check every move.
+     *
+     * @param records the records.
+     * @param games the number of games.
+     */
+    private static void checkGames(List<SelfPlay.Record> records, int games) {
+        TreeSet<Integer> indices = new TreeSet<>();
+        Board board = null;
+        for (int i = 0; i < records.size(); i++) {
+            SelfPlay.Record record = records.get(i);
+            indices.add(record.game);
+            if (i == 0 || records.get(i - 1).game != record.game) {
+                assertEquals(new Board(new BoardData(new int[81], -1, 1)), record.board);
+            } else {
+                assertEquals(board, record.board);
+            }
+            boolean legal = false;
+            for (Move move : record.board.getAllLegalMovesForAI()) {
+                legal |= move.a * 9 + move.b == record.move;
+            }
+            assertTrue(legal);
+            assertTrue(record.rootVisits[record.move] > 0);
+            board = record.board.makeMoveWithoutCheck(new Move(record.move / 9, record.move % 9));
+            boolean last = i == records.size() - 1 || records.get(i + 1).game != record.game;
+            if (last) {
+                assertEquals(record.winner, board.getGameStatus());
+            }
+        }
+        assertEquals(games, indices.size());
+        assertEquals(games - 1, (int) indices.last());
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.developersam.game.ten;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the tournament harness.
+ */
+public final class TournamentTest {
+
+    /**
+     * A fixed-simulation match must alternate colors, count every move, and give the same
+     * result when it is played again.
+     */
+    @Test
+    public void fixedSimulationMatchIsReproducible() {
+        SearchConfig first = Tournament.parseConfig("sims=100,threads=1");
+        SearchConfig second = Tournament.parseConfig("sims=100,threads=1,exploration=0.5");
+        Tournament.Result result = new Tournament(first, second, 11).run(4, 2);
+        assertEquals(4, result.games);
+        assertEquals(2, result.firstBlackGames);
+        assertTrue(result.sides[0].moves > 0 && result.sides[1].moves > 0);
+        assertTrue(result.sides[0].simulations >= 32 * result.sides[0].moves);
+        Tournament.Result replayed = new Tournament(first, second, 11).run(4, 1);
+        assertEquals(result.firstWins, replayed.firstWins);
+        assertEquals(result.firstBlackWins, replayed.firstBlackWins);
+        assertEquals(result.sides[0].simulations, replayed.sides[0].simulations);
+    }
+
+    /**
+     * The interval must contain the win rate, and even matches must give no Elo difference.
+     */
+    @Test
+    public void statisticsAreConsistent() {
+        Tournament.Result result = new Tournament.Result();
+        result.games = 100;
+        result.firstWins = 64;
+        double[] interval = result.getWinRateInterval();
+        assertTrue(interval[0] < 0.64 && 0.64 < interval[1]);
+        assertTrue(interval[0] > 0.5);
+        assertEquals(0, Tournament.Result.eloDifference(0.5), 1e-9);
+        assertEquals(100, Tournament.Result.eloDifference(0.64), 1);
+    }
+
+}